@@ -0,0 +1,31 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.testFramework.LightVirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * In-memory file with fixed length and file type - does not require a running application.
+ */
+class BenchmarkVirtualFile extends LightVirtualFile {
+
+    private final long myLength;
+    private final FileType myFileType;
+
+    BenchmarkVirtualFile(String name, FileType fileType, long length) {
+        super(name);
+        myFileType = fileType;
+        myLength = length;
+    }
+
+    @Override
+    public long getLength() {
+        return myLength;
+    }
+
+    @NotNull
+    @Override
+    public FileType getFileType() {
+        return myFileType;
+    }
+}
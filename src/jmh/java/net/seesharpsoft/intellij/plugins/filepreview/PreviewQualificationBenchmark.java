@@ -0,0 +1,62 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.openapi.fileTypes.PlainTextFileType;
+import com.intellij.openapi.fileTypes.UnknownFileType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PreviewQualificationBenchmark {
+
+    @Param({"0", "1024"})
+    public int fileSizeLimitKB;
+
+    @Param({"false", "true"})
+    public boolean previewOnlyKnownFileTypes;
+
+    @Param({"", "**/node_modules/**;**/build/**;*.min.js"})
+    public String excludedPatterns;
+
+    private PreviewSettingsSnapshot myPreviewSettings;
+    private BenchmarkVirtualFile myTextFile;
+    private BenchmarkVirtualFile myUnknownFile;
+    private BenchmarkVirtualFile myOversizedFile;
+
+    @Setup
+    public void setup() {
+        PreviewSettings previewSettings = new PreviewSettings();
+        previewSettings.setFileSizeLimitKB(fileSizeLimitKB);
+        previewSettings.setPreviewOnlyKnownFileTypes(previewOnlyKnownFileTypes);
+        previewSettings.setExcludedPatterns(excludedPatterns);
+        myPreviewSettings = previewSettings.getSnapshot();
+
+        myTextFile = new BenchmarkVirtualFile("readme.txt", PlainTextFileType.INSTANCE, 4 * 1024);
+        myUnknownFile = new BenchmarkVirtualFile("data.xyz", UnknownFileType.INSTANCE, 4 * 1024);
+        myOversizedFile = new BenchmarkVirtualFile("server.log", PlainTextFileType.INSTANCE, 512L * 1024 * 1024);
+    }
+
+    @Benchmark
+    public boolean qualifyTextFile() {
+        return PreviewUtil.isFileQualifiedForPreview(myTextFile, myPreviewSettings);
+    }
+
+    @Benchmark
+    public boolean qualifyUnknownFile() {
+        return PreviewUtil.isFileQualifiedForPreview(myUnknownFile, myPreviewSettings);
+    }
+
+    @Benchmark
+    public boolean qualifyOversizedFile() {
+        return PreviewUtil.isFileQualifiedForPreview(myOversizedFile, myPreviewSettings);
+    }
+}
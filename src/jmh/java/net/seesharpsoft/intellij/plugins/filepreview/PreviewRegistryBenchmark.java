@@ -0,0 +1,56 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.openapi.fileTypes.PlainTextFileType;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Preview state is checked on every selection, tab repaint and editor event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PreviewRegistryBenchmark {
+
+    @Param({"1", "4", "32"})
+    public int previewCount;
+
+    private PreviewRegistry myPreviewRegistry;
+    private VirtualFile myPreviewedFile;
+    private VirtualFile myOtherFile;
+
+    @Setup
+    public void setup() {
+        myPreviewRegistry = new PreviewRegistry();
+        for (int i = 0; i < previewCount; ++i) {
+            myPreviewedFile = new BenchmarkVirtualFile("Preview" + i + ".txt", PlainTextFileType.INSTANCE, 1024);
+            myPreviewRegistry.register(myPreviewedFile);
+        }
+        myOtherFile = new BenchmarkVirtualFile("Other.txt", PlainTextFileType.INSTANCE, 1024);
+    }
+
+    @Benchmark
+    public boolean isPreviewedHit() {
+        return myPreviewRegistry.isPreviewed(myPreviewedFile);
+    }
+
+    @Benchmark
+    public boolean isPreviewedMiss() {
+        return myPreviewRegistry.isPreviewed(myOtherFile);
+    }
+
+    @Benchmark
+    public List<VirtualFile> previewedFiles() {
+        return myPreviewRegistry.getPreviewedFiles();
+    }
+}
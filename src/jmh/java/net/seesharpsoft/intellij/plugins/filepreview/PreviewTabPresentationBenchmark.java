@@ -0,0 +1,49 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tab title and color are requested on every repaint of the editor tabs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PreviewTabPresentationBenchmark {
+
+    private static final String FILE_NAME = "PreviewProjectHandler.java";
+
+    private PreviewSettingsSnapshot myPreviewSettings;
+
+    @Setup
+    public void setup() {
+        PreviewSettings previewSettings = new PreviewSettings();
+        previewSettings.setPreviewTabTitlePattern("<<%s>>");
+        previewSettings.setPreviewTabColor(new Color(0x3C, 0x5A, 0x78));
+        myPreviewSettings = previewSettings.getSnapshot();
+    }
+
+    @Benchmark
+    public String formatTabTitle() {
+        return myPreviewSettings.formatPreviewTabTitle(FILE_NAME);
+    }
+
+    @Benchmark
+    public String formatTabTitleBaseline() {
+        // formatting the pattern on every request
+        return String.format(myPreviewSettings.getPreviewTabTitlePattern(), FILE_NAME);
+    }
+
+    @Benchmark
+    public Color getTabColor() {
+        return myPreviewSettings.getPreviewTabColor();
+    }
+}
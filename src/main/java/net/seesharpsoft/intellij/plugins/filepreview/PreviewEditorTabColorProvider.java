@@ -1,5 +1,6 @@
 package net.seesharpsoft.intellij.plugins.filepreview;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.fileEditor.impl.EditorTabColorProvider;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -9,11 +10,25 @@ import org.jetbrains.annotations.Nullable;
 import java.awt.*;
 
 public class PreviewEditorTabColorProvider implements EditorTabColorProvider {
+
+    private volatile PreviewSettingsSnapshot mySettings;
+
+    public PreviewEditorTabColorProvider() {
+        PreviewSettings previewSettings = PreviewSettings.getInstance();
+        mySettings = previewSettings.getSnapshot();
+        // the provider lives as long as the application
+        previewSettings.addPropertyChangeListener(evt -> {
+            if (PreviewSettings.SNAPSHOT_PROPERTY.equals(evt.getPropertyName())) {
+                mySettings = (PreviewSettingsSnapshot) evt.getNewValue();
+            }
+        }, ApplicationManager.getApplication());
+    }
+
     @Nullable
     @Override
     public Color getEditorTabColor(@NotNull Project project, @NotNull VirtualFile file) {
-        if (PreviewUtil.isPreviewed(file)) {
-            return PreviewSettings.getInstance().getPreviewTabColor();
+        if (PreviewUtil.isPreviewed(project, file)) {
+            return mySettings.getPreviewTabColor();
         }
         return null;
     }
@@ -1,5 +1,6 @@
 package net.seesharpsoft.intellij.plugins.filepreview;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.fileEditor.impl.EditorTabTitleProvider;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -7,13 +8,26 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class PreviewEditorTabTitleProvider implements EditorTabTitleProvider {
+
+    private volatile PreviewSettingsSnapshot mySettings;
+
+    public PreviewEditorTabTitleProvider() {
+        PreviewSettings previewSettings = PreviewSettings.getInstance();
+        mySettings = previewSettings.getSnapshot();
+        // the provider lives as long as the application
+        previewSettings.addPropertyChangeListener(evt -> {
+            if (PreviewSettings.SNAPSHOT_PROPERTY.equals(evt.getPropertyName())) {
+                mySettings = (PreviewSettingsSnapshot) evt.getNewValue();
+            }
+        }, ApplicationManager.getApplication());
+    }
+
     @Nullable
     @Override
     public String getEditorTabTitle(@NotNull Project project, @NotNull VirtualFile file) {
-        String title = null;
-        if (PreviewUtil.isPreviewed(file)) {
-            title = String.format(PreviewSettings.getInstance().getPreviewTabTitlePattern(), file.getPresentableName());
+        if (PreviewUtil.isPreviewed(project, file)) {
+            return mySettings.formatPreviewTabTitle(file.getPresentableName());
         }
-        return title == null || title.isEmpty() ? null : title;
+        return null;
     }
 }
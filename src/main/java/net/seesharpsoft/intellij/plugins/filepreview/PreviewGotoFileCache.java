@@ -0,0 +1,186 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.ProjectTopics;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.messages.MessageBusConnection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Per project LRU cache of selected file to resolved goto file - an entry is valid as long as the modification stamp of the selected file and
+ * the PSI structure are unchanged and no VFS change affects one of its files. Root changes (e.g. attached library sources) clear the cache.
+ */
+public final class PreviewGotoFileCache implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(PreviewGotoFileCache.class);
+
+    public static final int MAX_CACHE_SIZE = 256;
+
+    private final Map<VirtualFile, CachedGotoFile> myCache = new LinkedHashMap<VirtualFile, CachedGotoFile>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<VirtualFile, CachedGotoFile> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+
+    private final AtomicLong myHitCount = new AtomicLong();
+    private final AtomicLong myMissCount = new AtomicLong();
+
+    public static PreviewGotoFileCache getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, PreviewGotoFileCache.class);
+    }
+
+    private final PsiModificationTracker myPsiModificationTracker;
+
+    public PreviewGotoFileCache(@NotNull Project project) {
+        myPsiModificationTracker = PsiModificationTracker.SERVICE.getInstance(project);
+        MessageBusConnection connection = project.getMessageBus().connect(this);
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                invalidate(events);
+            }
+        });
+        connection.subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
+            @Override
+            public void rootsChanged(@NotNull ModuleRootEvent event) {
+                clear();
+            }
+        });
+    }
+
+    private long getPsiModificationCount() {
+        // changes inside code blocks (e.g. method bodies) do not change navigation targets
+        return myPsiModificationTracker.getOutOfCodeBlockModificationCount();
+    }
+
+    private static long getModificationStamp(@NotNull VirtualFile file) {
+        // unsaved changes are only reflected by the document
+        Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+        return document == null ? file.getModificationStamp() : document.getModificationStamp();
+    }
+
+    @Nullable
+    private VirtualFile getCachedGotoFile(@NotNull VirtualFile file) {
+        CachedGotoFile cachedGotoFile;
+        synchronized (myCache) {
+            cachedGotoFile = myCache.get(file);
+        }
+        if (cachedGotoFile == null) {
+            return null;
+        }
+        if (cachedGotoFile.modificationStamp != getModificationStamp(file) || cachedGotoFile.psiModificationCount != getPsiModificationCount() ||
+                !cachedGotoFile.gotoFile.isValid()) {
+            synchronized (myCache) {
+                myCache.remove(file, cachedGotoFile);
+            }
+            return null;
+        }
+        return cachedGotoFile.gotoFile;
+    }
+
+    public VirtualFile get(@NotNull VirtualFile file, @NotNull Function<VirtualFile, VirtualFile> gotoFileResolver) {
+        VirtualFile gotoFile = getCachedGotoFile(file);
+        if (gotoFile != null) {
+            myHitCount.incrementAndGet();
+            return gotoFile;
+        }
+        myMissCount.incrementAndGet();
+        long modificationStamp = getModificationStamp(file);
+        long psiModificationCount = getPsiModificationCount();
+        gotoFile = gotoFileResolver.apply(file);
+        if (gotoFile != null) {
+            synchronized (myCache) {
+                myCache.put(file, new CachedGotoFile(gotoFile, modificationStamp, psiModificationCount));
+            }
+        }
+        return gotoFile;
+    }
+
+    /**
+     * @return the cached goto file without resolving it, null if not cached
+     */
+    @Nullable
+    public VirtualFile peek(@NotNull VirtualFile file) {
+        return getCachedGotoFile(file);
+    }
+
+    public void clear() {
+        synchronized (myCache) {
+            myCache.clear();
+        }
+    }
+
+    protected void invalidate(@NotNull List<? extends VFileEvent> events) {
+        synchronized (myCache) {
+            if (myCache.isEmpty()) {
+                return;
+            }
+        }
+        Set<VirtualFile> files = new HashSet<>();
+        for (VFileEvent event : events) {
+            VirtualFile file = event.getFile();
+            if (file == null || file.isDirectory()) {
+                // affects an unknown number of files
+                clear();
+                return;
+            }
+            files.add(file);
+        }
+        synchronized (myCache) {
+            myCache.entrySet().removeIf(entry -> files.contains(entry.getKey()) || files.contains(entry.getValue().gotoFile));
+        }
+    }
+
+    public long getHitCount() {
+        return myHitCount.get();
+    }
+
+    public long getMissCount() {
+        return myMissCount.get();
+    }
+
+    public int size() {
+        synchronized (myCache) {
+            return myCache.size();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        clear();
+        LOG.info(String.format("goto file cache - hits: %d, misses: %d", getHitCount(), getMissCount()));
+    }
+
+    private static final class CachedGotoFile {
+        private final VirtualFile gotoFile;
+        private final long modificationStamp;
+        private final long psiModificationCount;
+
+        private CachedGotoFile(@NotNull VirtualFile gotoFile, long modificationStamp, long psiModificationCount) {
+            this.gotoFile = gotoFile;
+            this.modificationStamp = modificationStamp;
+            this.psiModificationCount = psiModificationCount;
+        }
+    }
+}
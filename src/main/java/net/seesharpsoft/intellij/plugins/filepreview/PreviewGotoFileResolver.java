@@ -0,0 +1,122 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.util.ProgressIndicatorBase;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
+import com.intellij.openapi.progress.util.ReadTask;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Resolves the goto file of a selected file in a background read action - a newer request cancels any resolution still in progress,
+ * only the result of the latest request is passed to the EDT.
+ * While indexing, the file is passed on without PSI resolution - the precise resolution of the latest request follows once in smart mode.
+ */
+public class PreviewGotoFileResolver {
+
+    private final Project myProject;
+    private volatile ProgressIndicator myCurrentIndicator;
+    // resolution to be done when indexing finished, only the latest request is kept
+    private volatile Runnable myPendingSmartResolution;
+    private final AtomicBoolean mySmartModeCallbackQueued = new AtomicBoolean();
+
+    public PreviewGotoFileResolver(@NotNull final Project project) {
+        myProject = project;
+    }
+
+    public void resolve(@Nullable final VirtualFile file, @NotNull final Consumer<VirtualFile> onResolved) {
+        resolve(file, onResolved, null);
+    }
+
+    /**
+     * @param onRefined called at most once with the precise result if resolved during indexing and differing from the result passed before
+     */
+    public void resolve(@Nullable final VirtualFile file,
+                        @NotNull final Consumer<VirtualFile> onResolved,
+                        @Nullable final Consumer<VirtualFile> onRefined) {
+        cancel();
+        if (file == null) {
+            onResolved.accept(null);
+            return;
+        }
+
+        if (DumbService.isDumb(myProject)) {
+            final VirtualFile dumbGotoFile = PreviewUtil.getGotoFile(myProject, file);
+            if (onRefined != null) {
+                resolveWhenSmart(() -> resolve(file, gotoFile -> {
+                    if (gotoFile != null && !gotoFile.equals(dumbGotoFile)) {
+                        onRefined.accept(gotoFile);
+                    }
+                }, onRefined));
+            }
+            onResolved.accept(dumbGotoFile);
+            return;
+        }
+
+        final ProgressIndicator indicator = new ProgressIndicatorBase();
+        myCurrentIndicator = indicator;
+        ProgressIndicatorUtils.scheduleWithWriteActionPriority(indicator, new ReadTask() {
+            @Nullable
+            @Override
+            public Continuation performInReadAction(@NotNull ProgressIndicator progressIndicator) throws ProcessCanceledException {
+                if (!PreviewUtil.isValid(myProject) || !file.isValid()) {
+                    return null;
+                }
+                final VirtualFile gotoFile = PreviewUtil.getGotoFile(myProject, file);
+                return new Continuation(() -> {
+                    if (myCurrentIndicator != indicator || !PreviewUtil.isValid(myProject)) {
+                        return;
+                    }
+                    myCurrentIndicator = null;
+                    onResolved.accept(gotoFile);
+                }, ModalityState.defaultModalityState());
+            }
+
+            @Override
+            public void onCanceled(@NotNull ProgressIndicator progressIndicator) {
+                // interrupted by a write action - restart if no newer request came in meanwhile
+                PreviewUtil.invokeSafe(myProject, () -> {
+                    if (myCurrentIndicator == indicator) {
+                        resolve(file, onResolved, onRefined);
+                    }
+                });
+            }
+        });
+    }
+
+    private void resolveWhenSmart(@NotNull final Runnable resolution) {
+        myPendingSmartResolution = resolution;
+        if (!mySmartModeCallbackQueued.compareAndSet(false, true)) {
+            return;
+        }
+        DumbService.getInstance(myProject).runWhenSmart(() -> {
+            mySmartModeCallbackQueued.set(false);
+            Runnable pendingResolution = myPendingSmartResolution;
+            myPendingSmartResolution = null;
+            if (pendingResolution != null && PreviewUtil.isValid(myProject)) {
+                pendingResolution.run();
+            }
+        });
+    }
+
+    public boolean isPending() {
+        return myCurrentIndicator != null;
+    }
+
+    public void cancel() {
+        myPendingSmartResolution = null;
+        ProgressIndicator indicator = myCurrentIndicator;
+        myCurrentIndicator = null;
+        if (indicator != null) {
+            indicator.cancel();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.codeInsight.daemon.impl.analysis.DefaultHighlightingSettingProvider;
+import com.intellij.codeInsight.daemon.impl.analysis.FileHighlightingSetting;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Previews get syntax highlighting only - no inspections and no external annotators. The platform asks for this default only if no
+ * highlighting level was chosen explicitly for a file, and it is neither persisted nor left behind once the preview is gone.
+ */
+public class PreviewHighlightingSettingProvider extends DefaultHighlightingSettingProvider {
+
+    @Nullable
+    @Override
+    public FileHighlightingSetting getDefaultSetting(@NotNull Project project, @NotNull VirtualFile file) {
+        if (PreviewSettings.getInstance().getSnapshot().isPreviewSyntaxHighlightingOnly() && PreviewUtil.isPreviewed(project, file)) {
+            return FileHighlightingSetting.SKIP_INSPECTION;
+        }
+        return null;
+    }
+}
@@ -1,6 +1,8 @@
 package net.seesharpsoft.intellij.plugins.filepreview;
 
 import com.intellij.openapi.project.Project;
+import net.seesharpsoft.intellij.plugins.filepreview.trace.PreviewEventRecorder;
+import net.seesharpsoft.intellij.plugins.filepreview.trace.PreviewEventType;
 import org.jetbrains.annotations.NotNull;
 
 import java.awt.*;
@@ -10,9 +12,11 @@ import java.awt.event.KeyListener;
 public class PreviewKeyListener implements KeyListener {
 
     private final Project myProject;
+    private final PreviewEventRecorder myEventRecorder;
 
-    public PreviewKeyListener(@NotNull final Project project) {
+    public PreviewKeyListener(@NotNull final Project project, @NotNull final PreviewEventRecorder eventRecorder) {
         myProject = project;
+        myEventRecorder = eventRecorder;
     }
 
     @Override
@@ -22,6 +26,7 @@ public class PreviewKeyListener implements KeyListener {
 
     @Override
     public void keyPressed(KeyEvent e) {
+        myEventRecorder.record(PreviewEventType.KEY_PRESSED, e.getKeyCode());
         switch (e.getKeyCode()) {
             case KeyEvent.VK_ESCAPE:
                 PreviewUtil.closeAllPreviews(myProject);
@@ -0,0 +1,147 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.ide.IdeEventQueue;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.popup.JBPopup;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.awt.RelativePoint;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.util.ui.JBUI;
+import net.seesharpsoft.intellij.plugins.filepreview.editor.PreviewDocumentViewer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shows previews in a read-only popup next to the tree instead of an editor tab - a single long-lived viewer whose content is swapped,
+ * neither editor tabs, tab presentation nor editor history are involved. The popup stays open while browsing the source tree.
+ */
+public final class PreviewPopup implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(PreviewPopup.class);
+
+    private final Project myProject;
+    private PreviewDocumentViewer myViewer;
+    private JPanel myPanel;
+    private JBLabel myTitleLabel;
+    private JBPopup myPopup;
+    private Component myAnchor;
+    private boolean myHiding;
+
+    private final AtomicLong myShowCount = new AtomicLong();
+
+    public static PreviewPopup getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, PreviewPopup.class);
+    }
+
+    public PreviewPopup(@NotNull Project project) {
+        myProject = project;
+        project.getMessageBus().connect(this).subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER, new FileEditorManagerListener() {
+            @Override
+            public void fileOpened(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+                // e.g. opened in an editor tab by double-click
+                if (file.equals(getFile())) {
+                    hide();
+                }
+            }
+        });
+    }
+
+    private PreviewDocumentViewer getViewer() {
+        if (myViewer == null) {
+            myViewer = new PreviewDocumentViewer(myProject);
+            Disposer.register(this, myViewer);
+            myTitleLabel = new JBLabel();
+            myTitleLabel.setBorder(JBUI.Borders.empty(2, 4));
+            myPanel = new JPanel(new BorderLayout());
+            myPanel.add(myTitleLabel, BorderLayout.NORTH);
+            myPanel.add(myViewer.getComponent(), BorderLayout.CENTER);
+            myPanel.setPreferredSize(JBUI.size(640, 480));
+        }
+        return myViewer;
+    }
+
+    /**
+     * @param anchor the tree the file was selected in - the popup is placed at its right
+     * @return false if the file has no text content to show or no anchor is visible
+     */
+    public boolean show(@NotNull VirtualFile file, @Nullable Component anchor) {
+        if (!(anchor instanceof JComponent) || !anchor.isShowing() || !getViewer().show(file)) {
+            return false;
+        }
+        myTitleLabel.setText(file.getPresentableName());
+        myAnchor = anchor;
+        if (myPopup == null || !myPopup.isVisible()) {
+            myPopup = createPopup();
+            Rectangle visibleRect = ((JComponent) anchor).getVisibleRect();
+            myPopup.show(new RelativePoint(anchor, new Point(visibleRect.x + visibleRect.width, visibleRect.y)));
+        }
+        myShowCount.incrementAndGet();
+        return true;
+    }
+
+    private JBPopup createPopup() {
+        return JBPopupFactory.getInstance().createComponentPopupBuilder(myPanel, null)
+                .setProject(myProject)
+                // the selection in the tree must keep the focus to continue browsing
+                .setRequestFocus(false)
+                .setFocusable(true)
+                .setResizable(true)
+                .setMovable(true)
+                .setCancelOnClickOutside(true)
+                // clicks in the source tree change the selection - the content is updated instead
+                .setCancelCallback(() -> myHiding || !isClickInAnchor())
+                .setCancelOnWindowDeactivation(true)
+                .setCancelKeyEnabled(true)
+                .createPopup();
+    }
+
+    private boolean isClickInAnchor() {
+        AWTEvent event = IdeEventQueue.getInstance().getTrueCurrentEvent();
+        return myAnchor != null && event instanceof MouseEvent && SwingUtilities.isDescendingFrom(((MouseEvent) event).getComponent(), myAnchor);
+    }
+
+    public void hide() {
+        if (myPopup != null) {
+            myHiding = true;
+            try {
+                myPopup.cancel();
+            } finally {
+                myHiding = false;
+            }
+            myPopup = null;
+        }
+    }
+
+    public boolean isShowing() {
+        return myPopup != null && myPopup.isVisible();
+    }
+
+    @Nullable
+    public VirtualFile getFile() {
+        return isShowing() ? myViewer.getFile() : null;
+    }
+
+    public long getShowCount() {
+        return myShowCount.get();
+    }
+
+    @Override
+    public void dispose() {
+        LOG.info(String.format("preview popup - previews shown without editor tab: %d", getShowCount()));
+        hide();
+        myAnchor = null;
+        myViewer = null;
+    }
+}
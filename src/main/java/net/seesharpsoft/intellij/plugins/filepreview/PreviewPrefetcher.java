@@ -0,0 +1,174 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import net.seesharpsoft.intellij.plugins.filepreview.qualification.PreviewQualification;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import javax.swing.tree.TreePath;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads documents and goto files of the rows next to the current tree selection in the background, so that stepping through
+ * a directory hits warm caches. Loaded documents are strongly referenced up to the configured memory budget (LRU).
+ */
+public final class PreviewPrefetcher implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(PreviewPrefetcher.class);
+
+    private final Project myProject;
+    private final ExecutorService myExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Quick File Preview Prefetcher", 1);
+    // increased on every selection - queued prefetches of former selections are skipped
+    private final AtomicInteger myGeneration = new AtomicInteger();
+
+    private final Map<VirtualFile, Document> myDocuments = new LinkedHashMap<>(16, 0.75f, true);
+    private long myDocumentsSize;
+
+    private final AtomicLong myPrefetchCount = new AtomicLong();
+    private final AtomicLong myHitCount = new AtomicLong();
+
+    public static PreviewPrefetcher getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, PreviewPrefetcher.class);
+    }
+
+    public PreviewPrefetcher(@NotNull Project project) {
+        myProject = project;
+    }
+
+    /**
+     * Called on EDT with the tree of the settled selection.
+     */
+    public void prefetchNeighbours(@NotNull JTree tree, @NotNull PreviewSettingsSnapshot previewSettings) {
+        int generation = myGeneration.incrementAndGet();
+        int row = tree.getLeadSelectionRow();
+        if (row < 0) {
+            return;
+        }
+        long budgetBytes = previewSettings.getPrefetchBudgetKB() * 1024L;
+        schedule(getFile(tree, row + 1), generation, budgetBytes, previewSettings);
+        schedule(getFile(tree, row - 1), generation, budgetBytes, previewSettings);
+    }
+
+    @Nullable
+    private static VirtualFile getFile(@NotNull JTree tree, int row) {
+        TreePath path = tree.getPathForRow(row);
+        return path == null ? null : PreviewUtil.getVirtualFile(path);
+    }
+
+    private void schedule(@Nullable VirtualFile file, int generation, long budgetBytes, PreviewSettingsSnapshot previewSettings) {
+        if (file == null || file.isDirectory() || budgetBytes <= 0) {
+            return;
+        }
+        myExecutor.execute(() -> {
+            if (generation != myGeneration.get() || !PreviewUtil.isValid(myProject)) {
+                return;
+            }
+            // read action gives way to any write action - the prefetch is simply dropped then
+            ProgressIndicatorUtils.runInReadActionWithWriteActionPriority(() -> prefetch(file, budgetBytes, previewSettings));
+        });
+    }
+
+    private void prefetch(@NotNull VirtualFile file, long budgetBytes, PreviewSettingsSnapshot previewSettings) {
+        if (!file.isValid() || !PreviewUtil.isValid(myProject)) {
+            return;
+        }
+        VirtualFile gotoFile = PreviewUtil.getGotoFile(myProject, file);
+        if (gotoFile == null || gotoFile.isDirectory() || gotoFile.getFileType().isBinary() ||
+                PreviewUtil.getQualification(gotoFile, previewSettings) != PreviewQualification.QUALIFIED) {
+            return;
+        }
+        // oversized files are not qualified - anything beyond the budget is skipped before loading, not dropped after (at most one char per byte)
+        if (gotoFile.getLength() * 2L > budgetBytes) {
+            return;
+        }
+        synchronized (myDocuments) {
+            if (myDocuments.containsKey(gotoFile)) {
+                return;
+            }
+        }
+        Document document = FileDocumentManager.getInstance().getDocument(gotoFile);
+        if (document == null) {
+            return;
+        }
+        myPrefetchCount.incrementAndGet();
+        retain(gotoFile, document, budgetBytes);
+    }
+
+    private void retain(@NotNull VirtualFile file, @NotNull Document document, long budgetBytes) {
+        long size = getSize(document);
+        if (size > budgetBytes) {
+            return;
+        }
+        synchronized (myDocuments) {
+            Document previous = myDocuments.put(file, document);
+            myDocumentsSize += size - (previous == null ? 0 : getSize(previous));
+            Iterator<Document> iterator = myDocuments.values().iterator();
+            while (myDocumentsSize > budgetBytes && iterator.hasNext()) {
+                myDocumentsSize -= getSize(iterator.next());
+                iterator.remove();
+            }
+        }
+    }
+
+    private static long getSize(@NotNull Document document) {
+        // chars are two bytes
+        return document.getTextLength() * 2L;
+    }
+
+    /**
+     * Called with the file about to be previewed - counts prefetch hits.
+     */
+    public void selected(@Nullable VirtualFile gotoFile) {
+        if (gotoFile == null) {
+            return;
+        }
+        synchronized (myDocuments) {
+            if (myDocuments.get(gotoFile) != null) {
+                myHitCount.incrementAndGet();
+            }
+        }
+    }
+
+    public void clear() {
+        myGeneration.incrementAndGet();
+        synchronized (myDocuments) {
+            myDocuments.clear();
+            myDocumentsSize = 0;
+        }
+    }
+
+    public long getPrefetchCount() {
+        return myPrefetchCount.get();
+    }
+
+    public long getHitCount() {
+        return myHitCount.get();
+    }
+
+    public long getRetainedSize() {
+        synchronized (myDocuments) {
+            return myDocumentsSize;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        clear();
+        myExecutor.shutdownNow();
+        LOG.info(String.format("prefetcher - prefetched: %d, hits: %d", getPrefetchCount(), getHitCount()));
+    }
+}
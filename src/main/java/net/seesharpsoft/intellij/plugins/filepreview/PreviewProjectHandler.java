@@ -1,18 +1,24 @@
 package net.seesharpsoft.intellij.plugins.filepreview;
 
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.ide.projectView.impl.AbstractProjectViewPane;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.FileEditorManagerEvent;
 import com.intellij.openapi.fileEditor.FileEditorManagerListener;
 import com.intellij.openapi.fileEditor.ex.FileEditorManagerEx;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.messages.MessageBusConnection;
+import net.seesharpsoft.intellij.plugins.filepreview.metrics.PreviewLatencyStage;
+import net.seesharpsoft.intellij.plugins.filepreview.metrics.PreviewLatencyTrace;
+import net.seesharpsoft.intellij.plugins.filepreview.trace.PreviewEventRecorder;
+import net.seesharpsoft.intellij.plugins.filepreview.trace.PreviewEventType;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
+import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
+import javax.swing.tree.TreePath;
 import java.awt.*;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseAdapter;
@@ -21,47 +27,73 @@ import java.awt.event.MouseListener;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static net.seesharpsoft.intellij.plugins.filepreview.PreviewSettings.PreviewBehavior.EXPLICIT_PREVIEW;
 
 public class PreviewProjectHandler {
 
-    public static final Key<String> PREVIEW_VIRTUAL_FILE_KEY = Key.create(PreviewProjectHandler.class.getName());
-
     private Project myProject;
 
     private final List<JTree> registeredTrees = new ArrayList<>();
 
+    // tool windows whose view handler is registered for this project
+    private final Set<String> myActivatedToolWindowIds = ConcurrentHashMap.newKeySet();
+    // tool windows waiting to be shown the first time - mapped to the removal of their show listener
+    private final Map<String, Runnable> myPendingToolWindowActivations = new ConcurrentHashMap<>();
+
     private final KeyListener myTreeKeyListener;
 
+    private volatile PreviewSettingsSnapshot mySettings;
+
     private final PropertyChangeListener mySettingsPropertyChangeListener = evt -> {
         switch (evt.getPropertyName()) {
             case "ProjectViewToggleOneClick":
                 registeredTrees.forEach(tree -> tree.setToggleClickCount((boolean) evt.getNewValue() ? 1 : 2));
                 break;
+            case PreviewSettings.SNAPSHOT_PROPERTY:
+                mySettings = (PreviewSettingsSnapshot) evt.getNewValue();
+                if (!mySettings.isPrefetchEnabled()) {
+                    PreviewPrefetcher.getInstance(myProject).clear();
+                }
+                if (!mySettings.isEventRecording()) {
+                    PreviewEventRecorder.getInstance(myProject).getTrace().clear();
+                }
+                if (!mySettings.isPreviewInPopup() && ((PreviewSettingsSnapshot) evt.getOldValue()).isPreviewInPopup()) {
+                    PreviewPopup.getInstance(myProject).hide();
+                }
+                if (mySettings.isPreviewSyntaxHighlightingOnly() != ((PreviewSettingsSnapshot) evt.getOldValue()).isPreviewSyntaxHighlightingOnly()) {
+                    // open previews switch between syntax level and full analysis
+                    DaemonCodeAnalyzer.getInstance(myProject).restart();
+                }
+                break;
             default:
                 // nothing to do yet
                 break;
         }
     };
 
-    private final TreeSelectionListener myTreeSelectionListener = treeSelectionEvent -> {
-        PreviewUtil.consumeSelectedFile((Component) treeSelectionEvent.getSource(), file -> {
-            VirtualFile gotoFile = PreviewUtil.getGotoFile(myProject, file);
-            PreviewUtil.toggleMarkPreviewHandling(gotoFile, theFile -> openOrFocusSelectedFile((Component) treeSelectionEvent.getSource()), null);
-        });
-    };
+    private final PreviewSelectionCoalescer mySelectionCoalescer;
+
+    private final PreviewGotoFileResolver myGotoFileResolver;
+
+    private final PreviewEventRecorder myEventRecorder;
+
+    private final TreeSelectionListener myTreeSelectionListener = this::treeSelectionChanged;
 
     private final MouseListener myTreeMouseListener = new MouseAdapter() {
         @Override
         public void mouseReleased(MouseEvent mouseEvent) {
+            myEventRecorder.record(PreviewEventType.MOUSE_RELEASED, (mouseEvent.getClickCount() & 0xFF) | mouseEvent.getButton() << 8);
             switch (mouseEvent.getClickCount()) {
                 case 1:
                     // one-click behavior is handled by myTreeSelectionListener
                     break;
                 case 2:
                     if (mouseEvent.getButton() == MouseEvent.BUTTON1) {
-                        PreviewUtil.consumeSelectedFile(mouseEvent.getComponent(), selectedFile -> PreviewUtil.disposePreview(myProject, PreviewUtil.getGotoFile(myProject, selectedFile)));
+                        PreviewUtil.consumeSelectedFile(mouseEvent.getComponent(), PreviewProjectHandler.this::selectedFileDoubleClicked);
                     }
                     break;
                 default:
@@ -73,13 +105,14 @@ public class PreviewProjectHandler {
     private final FileEditorManagerListener myFileEditorManagerListener = new FileEditorManagerListener() {
         @Override
         public void fileOpened(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+            myEventRecorder.record(PreviewEventType.FILE_OPENED, file);
             AbstractProjectViewPane currentProjectViewPane = PreviewUtil.getCurrentProjectViewPane(myProject);
             if (currentProjectViewPane == null) {
                 return;
             }
             PreviewUtil.consumeSelectedFile(currentProjectViewPane.getTree(), selectedFile -> {
-                if (PreviewUtil.isPreviewed(file) ||
-                        (selectedFile != null && selectedFile.equals(file) && !PreviewSettings.getInstance().getPreviewBehavior().equals(EXPLICIT_PREVIEW))) {
+                if (PreviewUtil.isPreviewed(myProject, file) ||
+                        (selectedFile != null && selectedFile.equals(file) && !mySettings.getPreviewBehavior().equals(EXPLICIT_PREVIEW))) {
                     PreviewUtil.closeOtherPreviews(myProject, file);
                 }
             });
@@ -87,20 +120,22 @@ public class PreviewProjectHandler {
 
         @Override
         public void fileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+            myEventRecorder.record(PreviewEventType.FILE_CLOSED, file);
             PreviewUtil.cleanupClosedFile(myProject, file);
         }
 
         @Override
         public void selectionChanged(@NotNull FileEditorManagerEvent event) {
+            myEventRecorder.record(PreviewEventType.EDITOR_SELECTION_CHANGED, event.getNewFile());
             if (event.getOldFile() != null) {
                 PreviewUtil.unmarkPreviewHandling(event.getOldFile());
             }
             VirtualFile gotoFile = PreviewUtil.getGotoFile(myProject, event.getNewFile());
             PreviewUtil.toggleMarkPreviewHandling(gotoFile);
             AbstractProjectViewPane currentProjectViewPane = PreviewUtil.getCurrentProjectViewPane(myProject);
-            if (currentProjectViewPane != null && !PreviewSettings.getInstance().getPreviewBehavior().equals(EXPLICIT_PREVIEW) && !PreviewUtil.isPreviewed(gotoFile)) {
+            if (currentProjectViewPane != null && !mySettings.getPreviewBehavior().equals(EXPLICIT_PREVIEW) && !PreviewUtil.isPreviewed(myProject, gotoFile)) {
                 PreviewUtil.consumeSelectedFile(currentProjectViewPane.getTree(), file -> {
-                    if (PreviewSettings.getInstance().isPreviewClosedOnTabChange() || (PreviewUtil.isProjectTreeFocused(myProject) && !PreviewUtil.isPreviewed(file))) {
+                    if (mySettings.isPreviewClosedOnTabChange() || (PreviewUtil.isProjectTreeFocused(myProject) && !PreviewUtil.isPreviewed(myProject, file))) {
                         PreviewUtil.closeAllPreviews(myProject);
                     }
                 });
@@ -115,10 +150,11 @@ public class PreviewProjectHandler {
         @Override
         public void beforeFileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
             file.putUserData(PreviewUtil.REQUIRES_PREVIEW_HANDLING, null);
-            if (PreviewUtil.isPreviewed(file)) {
+            if (PreviewUtil.isPreviewed(myProject, file)) {
                 if (PreviewUtil.isEditorSelected(myProject, file) && PreviewUtil.isProjectTreeFocused(myProject)) {
                     file.putUserData(PreviewUtil.REQUIRES_PREVIEW_HANDLING, true);
                 }
+                PreviewViewportCache.getInstance(myProject).save(file, source.getEditors(file));
                 PreviewUtil.invokeSafe(myProject, () -> PreviewUtil.disposePreview(myProject, file, false));
             }
         }
@@ -128,11 +164,15 @@ public class PreviewProjectHandler {
         assert myProject == null : "already initialized";
 
         myProject = project;
-        myTreeKeyListener = new PreviewKeyListener(project);
+        myEventRecorder = PreviewEventRecorder.getInstance(project);
+        myTreeKeyListener = new PreviewKeyListener(project, myEventRecorder);
+        mySelectionCoalescer = new PreviewSelectionCoalescer(project, () -> mySettings.getSelectionSettleTimeMs(), this::selectionSettled);
+        myGotoFileResolver = new PreviewGotoFileResolver(project);
 
         PreviewSettings previewSettings = PreviewSettings.getInstance();
         // re-set registry entry
         previewSettings.setKeepExpandCollapseState(previewSettings.isKeepExpandCollapseState());
+        mySettings = previewSettings.getSnapshot();
         previewSettings.addPropertyChangeListener(mySettingsPropertyChangeListener);
 
         messageBusConnection.subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER, myFileEditorManagerListener);
@@ -142,21 +182,58 @@ public class PreviewProjectHandler {
     public void dispose() {
         assert myProject != null : "not initialized yet";
 
+        mySelectionCoalescer.dispose();
+        myGotoFileResolver.cancel();
         PreviewUtil.closeAllPreviews(myProject);
 
         PreviewSettings previewSettings = PreviewSettings.getInstance();
         previewSettings.removePropertyChangeListener(mySettingsPropertyChangeListener);
 
+        myPendingToolWindowActivations.values().forEach(Runnable::run);
+        myPendingToolWindowActivations.clear();
         unregisterAllTreeHandlers();
+        myProject.putUserData(PreviewUtil.PREVIEW_SOURCE_COMPONENT, null);
 
         myProject = null;
     }
 
+    /**
+     * @return true if the tool window was not activated before
+     */
+    public boolean activateToolWindow(@NotNull final String toolWindowId) {
+        return myActivatedToolWindowIds.add(toolWindowId);
+    }
+
+    /**
+     * @return true if the tool window was activated before
+     */
+    public boolean deactivateToolWindow(@NotNull final String toolWindowId) {
+        return myActivatedToolWindowIds.remove(toolWindowId);
+    }
+
+    public boolean isToolWindowActivated(@NotNull final String toolWindowId) {
+        return myActivatedToolWindowIds.contains(toolWindowId);
+    }
+
+    /**
+     * @return false if an activation is already pending for the tool window
+     */
+    public boolean addPendingToolWindowActivation(@NotNull final String toolWindowId, @NotNull final Runnable cancelActivation) {
+        return myPendingToolWindowActivations.putIfAbsent(toolWindowId, cancelActivation) == null;
+    }
+
+    public void removePendingToolWindowActivation(@NotNull final String toolWindowId) {
+        Runnable cancelActivation = myPendingToolWindowActivations.remove(toolWindowId);
+        if (cancelActivation != null) {
+            cancelActivation.run();
+        }
+    }
+
     public void registerTreeHandlers(@NotNull final JTree tree) {
         if (areTreeHandlersRegistered(tree)) {
             return;
         }
-        tree.setToggleClickCount(PreviewSettings.getInstance().isProjectViewToggleOneClick() ? 1 : 2);
+        tree.setToggleClickCount(mySettings.isProjectViewToggleOneClick() ? 1 : 2);
         tree.addTreeSelectionListener(myTreeSelectionListener);
         tree.addKeyListener(myTreeKeyListener);
         tree.addMouseListener(myTreeMouseListener);
@@ -175,6 +252,9 @@ public class PreviewProjectHandler {
         }
 
         registeredTrees.remove(tree);
+        if (myProject.getUserData(PreviewUtil.PREVIEW_SOURCE_COMPONENT) == tree) {
+            myProject.putUserData(PreviewUtil.PREVIEW_SOURCE_COMPONENT, null);
+        }
         tree.removeTreeSelectionListener(myTreeSelectionListener);
         tree.removeKeyListener(myTreeKeyListener);
         tree.removeMouseListener(myTreeMouseListener);
@@ -184,39 +264,94 @@ public class PreviewProjectHandler {
         return registeredTrees.contains(tree);
     }
 
-    protected void focusComponentIfSelectedFileIsNotOpen(final Component component) {
-        PreviewUtil.consumeSelectedFile(component, selectedFile -> {
-            if (selectedFile == null) {
-                return;
+    protected void treeSelectionChanged(final TreeSelectionEvent treeSelectionEvent) {
+        TreePath newLeadSelectionPath = treeSelectionEvent.getNewLeadSelectionPath();
+        myEventRecorder.record(PreviewEventType.TREE_SELECTION, newLeadSelectionPath == null ? null : PreviewUtil.getVirtualFile(newLeadSelectionPath));
+        // selection moved on - any pending resolution is outdated
+        myGotoFileResolver.cancel();
+        PreviewLatencyTrace.start(myProject);
+        mySelectionCoalescer.selectionChanged((Component) treeSelectionEvent.getSource());
+    }
+
+    protected void selectionSettled(final Component component) {
+        PreviewLatencyTrace.mark(myProject, PreviewLatencyStage.SELECTION_SETTLE);
+        myProject.putUserData(PreviewUtil.PREVIEW_SOURCE_COMPONENT, component);
+        PreviewPrefetcher prefetcher = mySettings.isPrefetchEnabled() ? PreviewPrefetcher.getInstance(myProject) : null;
+        if (prefetcher != null && component instanceof JTree) {
+            prefetcher.prefetchNeighbours((JTree) component, mySettings);
+        }
+        PreviewUtil.consumeSelectedFile(component, file -> {
+            PreviewLatencyTrace.mark(myProject, PreviewLatencyStage.DATA_CONTEXT);
+            selectedFileSettled(component, file, prefetcher);
+        });
+    }
+
+    protected void selectedFileSettled(final Component component, final VirtualFile file, final PreviewPrefetcher prefetcher) {
+        myGotoFileResolver.resolve(file, gotoFile -> {
+            PreviewLatencyTrace.mark(myProject, PreviewLatencyStage.GOTO_RESOLUTION);
+            if (prefetcher != null) {
+                prefetcher.selected(gotoFile);
             }
-            final FileEditorManager fileEditorManager = FileEditorManager.getInstance(myProject);
-            final VirtualFile gotoFile = PreviewUtil.getGotoFile(myProject, selectedFile);
-            if (PreviewUtil.isProjectTreeFocused(myProject) ||
-                    (gotoFile != null && !fileEditorManager.isFileOpen(gotoFile))) {
-                component.requestFocus();
+            PreviewUtil.toggleMarkPreviewHandling(gotoFile, theFile -> openOrFocusSelectedFile(component, gotoFile), null);
+        }, this::refinedGotoFileResolved);
+    }
+
+    /**
+     * The selection was resolved during indexing and the precise goto file differs - applied without changing the focus.
+     */
+    protected void refinedGotoFileResolved(final VirtualFile gotoFile) {
+        if (!isValid() || PreviewUtil.isAutoScrollToSource(myProject)) {
+            return;
+        }
+        PreviewUtil.toggleMarkPreviewHandling(gotoFile, theFile -> PreviewUtil.invokeSafe(myProject, () -> {
+            switch (mySettings.getPreviewBehavior()) {
+                case PREVIEW_BY_DEFAULT:
+                    PreviewUtil.openPreviewOrEditor(myProject, gotoFile, false, false);
+                    break;
+                case EXPLICIT_PREVIEW:
+                    focusFileEditor(gotoFile, false);
+                    break;
+                default:
+                    throw new UnsupportedOperationException(String.format("case '%s' not handled", mySettings.getPreviewBehavior()));
             }
-        });
+        }), null);
+    }
+
+    protected void selectedFileDoubleClicked(final VirtualFile file) {
+        PreviewUtil.disposePreview(myProject, PreviewUtil.getGotoFile(myProject, file));
+    }
+
+    boolean isResolvingGotoFile() {
+        return myGotoFileResolver.isPending();
+    }
+
+    protected void focusComponentIfSelectedFileIsNotOpen(final Component component, final VirtualFile gotoFile) {
+        if (gotoFile == null) {
+            return;
+        }
+        final FileEditorManager fileEditorManager = FileEditorManager.getInstance(myProject);
+        if (PreviewUtil.isProjectTreeFocused(myProject) || !fileEditorManager.isFileOpen(gotoFile)) {
+            component.requestFocus();
+        }
     }
 
-    public void openOrFocusSelectedFile(final Component component) {
+    public void openOrFocusSelectedFile(final Component component, final VirtualFile gotoFile) {
         if (PreviewUtil.isAutoScrollToSource(myProject)) {
             return;
         }
         // - "Open declaration source in the same tab" is focus based (#29) - ensure that component has focus
         // - "Autoscroll from Source" triggers this function as well when switching tabs (#44) - focus shouldn't change
-        focusComponentIfSelectedFileIsNotOpen(component);
+        focusComponentIfSelectedFileIsNotOpen(component, gotoFile);
         PreviewUtil.invokeSafe(myProject, () -> {
-            switch (PreviewSettings.getInstance().getPreviewBehavior()) {
+            switch (mySettings.getPreviewBehavior()) {
                 case PREVIEW_BY_DEFAULT:
-                    PreviewUtil.openPreviewOrEditor(myProject, component);
+                    PreviewUtil.openPreviewOrEditor(myProject, gotoFile, false);
                     break;
                 case EXPLICIT_PREVIEW:
-                    PreviewUtil.consumeSelectedFile(component, file -> {
-                        focusFileEditor(PreviewUtil.getGotoFile(myProject, file), false);
-                    });
+                    focusFileEditor(gotoFile, false);
                     break;
                 default:
-                    throw new UnsupportedOperationException(String.format("case '%s' not handled", PreviewSettings.getInstance().getPreviewBehavior()));
+                    throw new UnsupportedOperationException(String.format("case '%s' not handled", mySettings.getPreviewBehavior()));
             }
         });
     }
@@ -0,0 +1,58 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the files previewed in a project - checking and closing previews does not require to iterate all open files.
+ * The document listeners of the previews are kept here as well, as documents are shared by all open projects.
+ */
+public final class PreviewRegistry {
+
+    private final Set<VirtualFile> myPreviewedFiles = ConcurrentHashMap.newKeySet();
+    private final Map<VirtualFile, DocumentListener> myDocumentListeners = new ConcurrentHashMap<>();
+
+    public static PreviewRegistry getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, PreviewRegistry.class);
+    }
+
+    public boolean isPreviewed(VirtualFile file) {
+        return file != null && myPreviewedFiles.contains(file);
+    }
+
+    public boolean register(@NotNull VirtualFile file) {
+        return myPreviewedFiles.add(file);
+    }
+
+    public boolean unregister(@NotNull VirtualFile file) {
+        return myPreviewedFiles.remove(file);
+    }
+
+    public void putDocumentListener(@NotNull VirtualFile file, @NotNull DocumentListener documentListener) {
+        myDocumentListeners.put(file, documentListener);
+    }
+
+    @Nullable
+    public DocumentListener removeDocumentListener(@NotNull VirtualFile file) {
+        return myDocumentListeners.remove(file);
+    }
+
+    @NotNull
+    public List<VirtualFile> getPreviewedFiles() {
+        return new ArrayList<>(myPreviewedFiles);
+    }
+
+    public boolean isEmpty() {
+        return myPreviewedFiles.isEmpty();
+    }
+}
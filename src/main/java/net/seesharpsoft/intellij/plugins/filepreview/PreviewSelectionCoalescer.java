@@ -0,0 +1,55 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.util.Alarm;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Coalesces rapid selection changes (e.g. holding an arrow key in a tree) - only the selection that is still current
+ * after the configured settle time is passed on.
+ */
+public class PreviewSelectionCoalescer {
+
+    private final Project myProject;
+    private final Alarm mySettleAlarm;
+    private final IntSupplier mySettleTimeMs;
+    private final Consumer<Component> mySettledSelectionConsumer;
+
+    public PreviewSelectionCoalescer(@NotNull final Project project,
+                                     @NotNull final IntSupplier settleTimeMs,
+                                     @NotNull final Consumer<Component> settledSelectionConsumer) {
+        myProject = project;
+        mySettleTimeMs = settleTimeMs;
+        mySettledSelectionConsumer = settledSelectionConsumer;
+        mySettleAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, project);
+    }
+
+    public void selectionChanged(@NotNull final Component source) {
+        mySettleAlarm.cancelAllRequests();
+
+        int settleTime = mySettleTimeMs.getAsInt();
+        if (settleTime <= 0) {
+            mySettledSelectionConsumer.accept(source);
+            return;
+        }
+        mySettleAlarm.addRequest(() -> {
+            if (PreviewUtil.isValid(myProject)) {
+                mySettledSelectionConsumer.accept(source);
+            }
+        }, settleTime);
+    }
+
+    public void cancel() {
+        mySettleAlarm.cancelAllRequests();
+    }
+
+    public void dispose() {
+        cancel();
+        Disposer.dispose(mySettleAlarm);
+    }
+}
@@ -1,10 +1,12 @@
 package net.seesharpsoft.intellij.plugins.filepreview;
 
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.PersistentStateComponent;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.components.State;
 import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.registry.Registry;
 import com.intellij.openapi.util.registry.RegistryValue;
 import org.jetbrains.annotations.NotNull;
@@ -22,6 +24,8 @@ public final class PreviewSettings implements PersistentStateComponent<PreviewSe
 
     public static final String PREVIEW_SETTINGS_STORAGE_FILE = "quick-file-preview.xml";
 
+    public static final String SNAPSHOT_PROPERTY = "Snapshot";
+
     public enum PreviewBehavior {
         PREVIEW_BY_DEFAULT,
         EXPLICIT_PREVIEW
@@ -39,12 +43,31 @@ public final class PreviewSettings implements PersistentStateComponent<PreviewSe
         public boolean KEEP_EXPAND_COLLAPSE_STATE = true;
         public Integer PREVIEW_FILE_SIZE_LIMIT_KB = 0;
         public boolean PREVIEW_ONLY_KNOWN_FILE_TYPES = false;
+        public Integer PREVIEW_SELECTION_SETTLE_TIME_MS = 100;
+        public boolean PREVIEW_OVERSIZED_FILES_READ_ONLY = false;
+        public boolean PREVIEW_REUSE_EDITOR = false;
+        public Integer PREVIEW_RING_SIZE = 3;
+        public String PREVIEW_EXCLUDED_PATTERNS = "";
+        public String PREVIEW_FILE_TYPE_SIZE_LIMITS = "";
+        public boolean PREVIEW_SNIFF_BINARY_CONTENT = false;
+        public boolean PREVIEW_PREFETCH_ENABLED = false;
+        public Integer PREVIEW_PREFETCH_BUDGET_KB = 4096;
+        public boolean PREVIEW_IN_POPUP = false;
+        public boolean PREVIEW_DIRECTORIES = false;
+        public boolean PREVIEW_IMAGE_THUMBNAILS = false;
+        public boolean PREVIEW_ARCHIVE_ENTRIES = false;
+        public boolean PREVIEW_SYNTAX_HIGHLIGHTING_ONLY = false;
+        public boolean PREVIEW_EVENT_RECORDING = false;
     }
 
     private OptionSet myOptions = new OptionSet();
+    private volatile PreviewSettingsSnapshot mySnapshot = new PreviewSettingsSnapshot(myOptions);
     private final PropertyChangeSupport myPropertyChangeSupport = new PropertyChangeSupport(this);
+    // > 0 while settings are applied in a batch - the snapshot is published once the batch is finished
+    private int myBatchUpdateDepth;
+    private boolean mySnapshotOutdated;
 
-    private PreviewSettings() {
+    PreviewSettings() {
     }
 
     public static PreviewSettings getInstance() {
@@ -55,10 +78,32 @@ public final class PreviewSettings implements PersistentStateComponent<PreviewSe
         this.myPropertyChangeSupport.addPropertyChangeListener(listener);
     }
 
+    /**
+     * The listener is removed when the parent is disposed.
+     */
+    public void addPropertyChangeListener(@NotNull PropertyChangeListener listener, @NotNull Disposable parentDisposable) {
+        addPropertyChangeListener(listener);
+        Disposer.register(parentDisposable, () -> removePropertyChangeListener(listener));
+    }
+
     public void removePropertyChangeListener(PropertyChangeListener listener) {
         this.myPropertyChangeSupport.removePropertyChangeListener(listener);
     }
 
+    /**
+     * Applies several settings at once - a single consistent snapshot is published afterwards instead of one per changed setting.
+     */
+    public void batchUpdate(@NotNull Runnable update) {
+        ++myBatchUpdateDepth;
+        try {
+            update.run();
+        } finally {
+            if (--myBatchUpdateDepth == 0 && mySnapshotOutdated) {
+                updateSnapshot();
+            }
+        }
+    }
+
     @Override
     public OptionSet getState() {
         return this.myOptions;
@@ -67,6 +112,23 @@ public final class PreviewSettings implements PersistentStateComponent<PreviewSe
     @Override
     public void loadState(@NotNull OptionSet state) {
         this.myOptions = state;
+        updateSnapshot();
+    }
+
+    @NotNull
+    public PreviewSettingsSnapshot getSnapshot() {
+        return mySnapshot;
+    }
+
+    private void updateSnapshot() {
+        if (myBatchUpdateDepth > 0) {
+            mySnapshotOutdated = true;
+            return;
+        }
+        mySnapshotOutdated = false;
+        PreviewSettingsSnapshot oldSnapshot = mySnapshot;
+        mySnapshot = new PreviewSettingsSnapshot(getState());
+        myPropertyChangeSupport.firePropertyChange(SNAPSHOT_PROPERTY, oldSnapshot, mySnapshot);
     }
 
     /*********** Settings section **********/
@@ -77,6 +139,7 @@ public final class PreviewSettings implements PersistentStateComponent<PreviewSe
 
     public void setPreviewClosedOnEmptySelection(boolean previewClosedOnEmptySelection) {
         getState().CLOSE_PREVIEW_ON_EMPTY_SELECTION = previewClosedOnEmptySelection;
+        updateSnapshot();
     }
 
     public boolean isPreviewClosedOnTabChange() {
@@ -85,6 +148,7 @@ public final class PreviewSettings implements PersistentStateComponent<PreviewSe
 
     public void setPreviewClosedOnTabChange(boolean previewClosedOnTabChange) {
         getState().CLOSE_PREVIEW_ON_TAB_CHANGE = previewClosedOnTabChange;
+        updateSnapshot();
     }
 
     public boolean isOpenEditorOnEditPreview() {
@@ -93,6 +157,7 @@ public final class PreviewSettings implements PersistentStateComponent<PreviewSe
 
     public void setOpenEditorOnEditPreview(boolean openEditorOnEditPreview) {
         getState().OPEN_EDITOR_ON_EDIT_PREVIEW = openEditorOnEditPreview;
+        updateSnapshot();
     }
 
     public PreviewBehavior getPreviewBehavior() {
@@ -101,6 +166,7 @@ public final class PreviewSettings implements PersistentStateComponent<PreviewSe
 
     public void setPreviewBehavior(PreviewBehavior previewBehavior) {
         getState().PREVIEW_BEHAVIOR = previewBehavior;
+        updateSnapshot();
     }
 
     public boolean isProjectViewToggleOneClick() {
@@ -110,27 +176,26 @@ public final class PreviewSettings implements PersistentStateComponent<PreviewSe
     public void setProjectViewToggleOneClick(boolean projectViewToggleOneClick) {
         boolean oldValue = getState().PROJECT_VIEW_TOGGLE_ONE_CLICK;
         getState().PROJECT_VIEW_TOGGLE_ONE_CLICK = projectViewToggleOneClick;
+        updateSnapshot();
         myPropertyChangeSupport.firePropertyChange("ProjectViewToggleOneClick", oldValue, projectViewToggleOneClick);
     }
+
     public boolean isPreviewOnlyKnownFileTypes() {
         return getState().PREVIEW_ONLY_KNOWN_FILE_TYPES;
     }
 
     public void setPreviewOnlyKnownFileTypes(boolean previewOnlyKnownFileTypes) {
         getState().PREVIEW_ONLY_KNOWN_FILE_TYPES = previewOnlyKnownFileTypes;
+        updateSnapshot();
     }
 
     public Color getPreviewTabColor() {
-        String color = getState().PREVIEW_TAB_COLOR;
-        try {
-            return color == null || color.isEmpty() ? null : Color.decode(getState().PREVIEW_TAB_COLOR);
-        } catch (NumberFormatException exc) {
-            return null;
-        }
+        return getSnapshot().getPreviewTabColor();
     }
 
     public void setPreviewTabColor(Color color) {
         getState().PREVIEW_TAB_COLOR = color == null ? "" : "" + color.getRGB();
+        updateSnapshot();
     }
 
     public String getPreviewTabTitlePattern() {
@@ -139,6 +204,7 @@ public final class PreviewSettings implements PersistentStateComponent<PreviewSe
 
     public void setPreviewTabTitlePattern(String titlePattern) {
         getState().PREVIEW_TAB_TITLE_PATTERN = titlePattern;
+        updateSnapshot();
     }
 
     public Integer getFileSizeLimitKB() {
@@ -147,6 +213,142 @@ public final class PreviewSettings implements PersistentStateComponent<PreviewSe
 
     public void setFileSizeLimitKB(Integer fileSizeLimit) {
         getState().PREVIEW_FILE_SIZE_LIMIT_KB = fileSizeLimit;
+        updateSnapshot();
+    }
+
+    public boolean isPreviewOversizedFilesReadOnly() {
+        return getState().PREVIEW_OVERSIZED_FILES_READ_ONLY;
+    }
+
+    public void setPreviewOversizedFilesReadOnly(boolean previewOversizedFilesReadOnly) {
+        getState().PREVIEW_OVERSIZED_FILES_READ_ONLY = previewOversizedFilesReadOnly;
+        updateSnapshot();
+    }
+
+    public boolean isPreviewReuseEditor() {
+        return getState().PREVIEW_REUSE_EDITOR;
+    }
+
+    public void setPreviewReuseEditor(boolean previewReuseEditor) {
+        getState().PREVIEW_REUSE_EDITOR = previewReuseEditor;
+        updateSnapshot();
+    }
+
+    public Integer getPreviewRingSize() {
+        return getState().PREVIEW_RING_SIZE;
+    }
+
+    public void setPreviewRingSize(Integer previewRingSize) {
+        getState().PREVIEW_RING_SIZE = previewRingSize;
+        updateSnapshot();
+    }
+
+    public String getExcludedPatterns() {
+        return getState().PREVIEW_EXCLUDED_PATTERNS;
+    }
+
+    public void setExcludedPatterns(String excludedPatterns) {
+        getState().PREVIEW_EXCLUDED_PATTERNS = excludedPatterns;
+        updateSnapshot();
+    }
+
+    public String getFileTypeSizeLimits() {
+        return getState().PREVIEW_FILE_TYPE_SIZE_LIMITS;
+    }
+
+    public void setFileTypeSizeLimits(String fileTypeSizeLimits) {
+        getState().PREVIEW_FILE_TYPE_SIZE_LIMITS = fileTypeSizeLimits;
+        updateSnapshot();
+    }
+
+    public boolean isSniffBinaryContent() {
+        return getState().PREVIEW_SNIFF_BINARY_CONTENT;
+    }
+
+    public void setSniffBinaryContent(boolean sniffBinaryContent) {
+        getState().PREVIEW_SNIFF_BINARY_CONTENT = sniffBinaryContent;
+        updateSnapshot();
+    }
+
+    public boolean isPrefetchEnabled() {
+        return getState().PREVIEW_PREFETCH_ENABLED;
+    }
+
+    public void setPrefetchEnabled(boolean prefetchEnabled) {
+        getState().PREVIEW_PREFETCH_ENABLED = prefetchEnabled;
+        updateSnapshot();
+    }
+
+    public Integer getPrefetchBudgetKB() {
+        return getState().PREVIEW_PREFETCH_BUDGET_KB;
+    }
+
+    public void setPrefetchBudgetKB(Integer prefetchBudgetKB) {
+        getState().PREVIEW_PREFETCH_BUDGET_KB = prefetchBudgetKB;
+        updateSnapshot();
+    }
+
+    public boolean isPreviewInPopup() {
+        return getState().PREVIEW_IN_POPUP;
+    }
+
+    public void setPreviewInPopup(boolean previewInPopup) {
+        getState().PREVIEW_IN_POPUP = previewInPopup;
+        updateSnapshot();
+    }
+
+    public boolean isPreviewDirectories() {
+        return getState().PREVIEW_DIRECTORIES;
+    }
+
+    public void setPreviewDirectories(boolean previewDirectories) {
+        getState().PREVIEW_DIRECTORIES = previewDirectories;
+        updateSnapshot();
+    }
+
+    public boolean isPreviewImageThumbnails() {
+        return getState().PREVIEW_IMAGE_THUMBNAILS;
+    }
+
+    public void setPreviewImageThumbnails(boolean previewImageThumbnails) {
+        getState().PREVIEW_IMAGE_THUMBNAILS = previewImageThumbnails;
+        updateSnapshot();
+    }
+
+    public boolean isPreviewArchiveEntries() {
+        return getState().PREVIEW_ARCHIVE_ENTRIES;
+    }
+
+    public void setPreviewArchiveEntries(boolean previewArchiveEntries) {
+        getState().PREVIEW_ARCHIVE_ENTRIES = previewArchiveEntries;
+        updateSnapshot();
+    }
+
+    public boolean isPreviewSyntaxHighlightingOnly() {
+        return getState().PREVIEW_SYNTAX_HIGHLIGHTING_ONLY;
+    }
+
+    public void setPreviewSyntaxHighlightingOnly(boolean previewSyntaxHighlightingOnly) {
+        getState().PREVIEW_SYNTAX_HIGHLIGHTING_ONLY = previewSyntaxHighlightingOnly;
+        updateSnapshot();
+    }
+
+    public boolean isEventRecording() {
+        return getState().PREVIEW_EVENT_RECORDING;
+    }
+
+    public void setEventRecording(boolean eventRecording) {
+        getState().PREVIEW_EVENT_RECORDING = eventRecording;
+        updateSnapshot();
+    }
+
+    public Integer getSelectionSettleTimeMs() {
+        return getState().PREVIEW_SELECTION_SETTLE_TIME_MS;
+    }
+
+    public void setSelectionSettleTimeMs(Integer selectionSettleTimeMs) {
+        getState().PREVIEW_SELECTION_SETTLE_TIME_MS = selectionSettleTimeMs;
+        updateSnapshot();
     }
 
     public boolean isKeepExpandCollapseState() {
@@ -170,5 +372,6 @@ public final class PreviewSettings implements PersistentStateComponent<PreviewSe
         getState().KEEP_EXPAND_COLLAPSE_STATE = keepExpandCollapseState;
         tryGetAndSetRegistryValue("async.project.view.collapse.tree.path.recursively", !keepExpandCollapseState);
         tryGetAndSetRegistryValue("ide.tree.collapse.recursively", !keepExpandCollapseState);
+        updateSnapshot();
     }
 }
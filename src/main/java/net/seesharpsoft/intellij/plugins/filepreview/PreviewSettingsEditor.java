@@ -25,6 +25,21 @@ public class PreviewSettingsEditor implements SearchableConfigurable {
     private JCheckBox cbKeepExpandCollapseState;
     private JTextField txtFileSizeLimit;
     private JCheckBox cbPreviewOnlyKnownFileTypes;
+    private JTextField txtSelectionSettleTime;
+    private JCheckBox cbPreviewOversizedFilesReadOnly;
+    private JCheckBox cbPreviewReuseEditor;
+    private JTextField txtPreviewRingSize;
+    private JTextField txtExcludedPatterns;
+    private JTextField txtFileTypeSizeLimits;
+    private JCheckBox cbSniffBinaryContent;
+    private JCheckBox cbPreviewInPopup;
+    private JCheckBox cbPreviewDirectories;
+    private JCheckBox cbPreviewImageThumbnails;
+    private JCheckBox cbPreviewArchiveEntries;
+    private JCheckBox cbPreviewSyntaxHighlightingOnly;
+    private JCheckBox cbEventRecording;
+    private JCheckBox cbPrefetchEnabled;
+    private JTextField txtPrefetchBudget;
 
     protected void createUIComponents() {
         cpPreviewTabColor = new CheckBoxWithColorChooser("Tab color   ");
@@ -67,7 +82,22 @@ public class PreviewSettingsEditor implements SearchableConfigurable {
                 !Objects.equals(txtTitlePattern.getText(), previewSettings.getPreviewTabTitlePattern()) ||
                 isModified(cbKeepExpandCollapseState, previewSettings.isKeepExpandCollapseState()) ||
                 getFileSizeLimitKB() != previewSettings.getFileSizeLimitKB() ||
-                isModified(cbPreviewOnlyKnownFileTypes, previewSettings.isPreviewOnlyKnownFileTypes());
+                isModified(cbPreviewOnlyKnownFileTypes, previewSettings.isPreviewOnlyKnownFileTypes()) ||
+                getSelectionSettleTimeMs() != previewSettings.getSelectionSettleTimeMs() ||
+                isModified(cbPreviewOversizedFilesReadOnly, previewSettings.isPreviewOversizedFilesReadOnly()) ||
+                isModified(cbPreviewReuseEditor, previewSettings.isPreviewReuseEditor()) ||
+                getPreviewRingSize() != previewSettings.getPreviewRingSize() ||
+                !Objects.equals(txtExcludedPatterns.getText(), previewSettings.getExcludedPatterns()) ||
+                !Objects.equals(txtFileTypeSizeLimits.getText(), previewSettings.getFileTypeSizeLimits()) ||
+                isModified(cbSniffBinaryContent, previewSettings.isSniffBinaryContent()) ||
+                isModified(cbPreviewInPopup, previewSettings.isPreviewInPopup()) ||
+                isModified(cbPreviewDirectories, previewSettings.isPreviewDirectories()) ||
+                isModified(cbPreviewImageThumbnails, previewSettings.isPreviewImageThumbnails()) ||
+                isModified(cbPreviewArchiveEntries, previewSettings.isPreviewArchiveEntries()) ||
+                isModified(cbPreviewSyntaxHighlightingOnly, previewSettings.isPreviewSyntaxHighlightingOnly()) ||
+                isModified(cbEventRecording, previewSettings.isEventRecording()) ||
+                isModified(cbPrefetchEnabled, previewSettings.isPrefetchEnabled()) ||
+                getPrefetchBudgetKB() != previewSettings.getPrefetchBudgetKB();
     }
 
     @Override
@@ -85,26 +115,76 @@ public class PreviewSettingsEditor implements SearchableConfigurable {
         cbKeepExpandCollapseState.setSelected(previewSettings.isKeepExpandCollapseState());
         txtFileSizeLimit.setText(previewSettings.getFileSizeLimitKB().toString());
         cbPreviewOnlyKnownFileTypes.setSelected(previewSettings.isPreviewOnlyKnownFileTypes());
+        txtSelectionSettleTime.setText(previewSettings.getSelectionSettleTimeMs().toString());
+        cbPreviewOversizedFilesReadOnly.setSelected(previewSettings.isPreviewOversizedFilesReadOnly());
+        cbPreviewReuseEditor.setSelected(previewSettings.isPreviewReuseEditor());
+        txtPreviewRingSize.setText(previewSettings.getPreviewRingSize().toString());
+        txtExcludedPatterns.setText(previewSettings.getExcludedPatterns());
+        txtFileTypeSizeLimits.setText(previewSettings.getFileTypeSizeLimits());
+        cbSniffBinaryContent.setSelected(previewSettings.isSniffBinaryContent());
+        cbPreviewInPopup.setSelected(previewSettings.isPreviewInPopup());
+        cbPreviewDirectories.setSelected(previewSettings.isPreviewDirectories());
+        cbPreviewImageThumbnails.setSelected(previewSettings.isPreviewImageThumbnails());
+        cbPreviewArchiveEntries.setSelected(previewSettings.isPreviewArchiveEntries());
+        cbPreviewSyntaxHighlightingOnly.setSelected(previewSettings.isPreviewSyntaxHighlightingOnly());
+        cbEventRecording.setSelected(previewSettings.isEventRecording());
+        cbPrefetchEnabled.setSelected(previewSettings.isPrefetchEnabled());
+        txtPrefetchBudget.setText(previewSettings.getPrefetchBudgetKB().toString());
     }
 
     @Override
     public void apply() throws ConfigurationException {
         PreviewSettings previewSettings = PreviewSettings.getInstance();
         Color previewTabColor = cpPreviewTabColor.isSelected() ? cpPreviewTabColor.getColor() : null;
-        previewSettings.setPreviewClosedOnEmptySelection(cbClosePreviewOnEmptySelection.isSelected());
-        previewSettings.setPreviewClosedOnTabChange(cbPreviewClosedOnTabChange.isSelected());
-        previewSettings.setOpenEditorOnEditPreview(cbOpenEditorOnEditPreview.isSelected());
-        previewSettings.setPreviewBehavior(PreviewSettings.PreviewBehavior.values()[sbPreviewBehavior.getSelectedIndex()]);
-        previewSettings.setProjectViewToggleOneClick(cbProjectViewOneClickToggle.isSelected());
-        previewSettings.setPreviewTabColor(previewTabColor);
-        previewSettings.setPreviewTabTitlePattern(txtTitlePattern.getText());
-        previewSettings.setKeepExpandCollapseState(cbKeepExpandCollapseState.isSelected());
-        previewSettings.setFileSizeLimitKB(getFileSizeLimitKB());
-        previewSettings.setPreviewOnlyKnownFileTypes(cbPreviewOnlyKnownFileTypes.isSelected());
+        // parsed upfront - invalid input must not leave the settings partially applied
+        int fileSizeLimitKB = getFileSizeLimitKB();
+        int selectionSettleTimeMs = getSelectionSettleTimeMs();
+        int previewRingSize = getPreviewRingSize();
+        int prefetchBudgetKB = getPrefetchBudgetKB();
+        // published as one snapshot - listeners never see partially applied settings
+        previewSettings.batchUpdate(() -> {
+            previewSettings.setPreviewClosedOnEmptySelection(cbClosePreviewOnEmptySelection.isSelected());
+            previewSettings.setPreviewClosedOnTabChange(cbPreviewClosedOnTabChange.isSelected());
+            previewSettings.setOpenEditorOnEditPreview(cbOpenEditorOnEditPreview.isSelected());
+            previewSettings.setPreviewBehavior(PreviewSettings.PreviewBehavior.values()[sbPreviewBehavior.getSelectedIndex()]);
+            previewSettings.setProjectViewToggleOneClick(cbProjectViewOneClickToggle.isSelected());
+            previewSettings.setPreviewTabColor(previewTabColor);
+            previewSettings.setPreviewTabTitlePattern(txtTitlePattern.getText());
+            previewSettings.setKeepExpandCollapseState(cbKeepExpandCollapseState.isSelected());
+            previewSettings.setFileSizeLimitKB(fileSizeLimitKB);
+            previewSettings.setPreviewOnlyKnownFileTypes(cbPreviewOnlyKnownFileTypes.isSelected());
+            previewSettings.setSelectionSettleTimeMs(selectionSettleTimeMs);
+            previewSettings.setPreviewOversizedFilesReadOnly(cbPreviewOversizedFilesReadOnly.isSelected());
+            previewSettings.setPreviewReuseEditor(cbPreviewReuseEditor.isSelected());
+            previewSettings.setPreviewRingSize(previewRingSize);
+            previewSettings.setExcludedPatterns(txtExcludedPatterns.getText());
+            previewSettings.setFileTypeSizeLimits(txtFileTypeSizeLimits.getText());
+            previewSettings.setSniffBinaryContent(cbSniffBinaryContent.isSelected());
+            previewSettings.setPreviewInPopup(cbPreviewInPopup.isSelected());
+            previewSettings.setPreviewDirectories(cbPreviewDirectories.isSelected());
+            previewSettings.setPreviewImageThumbnails(cbPreviewImageThumbnails.isSelected());
+            previewSettings.setPreviewArchiveEntries(cbPreviewArchiveEntries.isSelected());
+            previewSettings.setPreviewSyntaxHighlightingOnly(cbPreviewSyntaxHighlightingOnly.isSelected());
+            previewSettings.setEventRecording(cbEventRecording.isSelected());
+            previewSettings.setPrefetchEnabled(cbPrefetchEnabled.isSelected());
+            previewSettings.setPrefetchBudgetKB(prefetchBudgetKB);
+        });
     }
 
     private int getFileSizeLimitKB() {
         return Integer.parseInt(txtFileSizeLimit.getText());
     }
 
+    private int getSelectionSettleTimeMs() {
+        return Integer.parseInt(txtSelectionSettleTime.getText());
+    }
+
+    private int getPreviewRingSize() {
+        return Integer.parseInt(txtPreviewRingSize.getText());
+    }
+
+    private int getPrefetchBudgetKB() {
+        return Integer.parseInt(txtPrefetchBudget.getText());
+    }
+
 }
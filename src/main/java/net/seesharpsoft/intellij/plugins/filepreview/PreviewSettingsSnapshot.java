@@ -0,0 +1,275 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import net.seesharpsoft.intellij.plugins.filepreview.qualification.BinaryContentRule;
+import net.seesharpsoft.intellij.plugins.filepreview.qualification.FileSizeRule;
+import net.seesharpsoft.intellij.plugins.filepreview.qualification.KnownFileTypeRule;
+import net.seesharpsoft.intellij.plugins.filepreview.qualification.PathPatternRule;
+import net.seesharpsoft.intellij.plugins.filepreview.qualification.PreviewQualificationRule;
+import net.seesharpsoft.intellij.plugins.filepreview.qualification.PreviewQualifier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable state of {@link PreviewSettings} - the tab title pattern is precompiled and the tab color decoded once, so that per-event
+ * and per-repaint reads do neither parsing nor formatting. The qualification rules are compiled once per snapshot as well.
+ */
+public final class PreviewSettingsSnapshot {
+
+    private static final String FILE_NAME_PLACEHOLDER = "%s";
+
+    private final boolean myPreviewClosedOnEmptySelection;
+    private final boolean myPreviewClosedOnTabChange;
+    private final boolean myOpenEditorOnEditPreview;
+    private final PreviewSettings.PreviewBehavior myPreviewBehavior;
+    private final boolean myProjectViewToggleOneClick;
+    private final boolean myKeepExpandCollapseState;
+    private final int myFileSizeLimitKB;
+    private final boolean myPreviewOnlyKnownFileTypes;
+    private final int mySelectionSettleTimeMs;
+    private final boolean myPreviewOversizedFilesReadOnly;
+    private final boolean myPreviewReuseEditor;
+    private final int myPreviewRingSize;
+    private final String myExcludedPatterns;
+    private final String myFileTypeSizeLimits;
+    private final boolean mySniffBinaryContent;
+    private final boolean myPrefetchEnabled;
+    private final int myPrefetchBudgetKB;
+    private final boolean myPreviewInPopup;
+    private final boolean myPreviewDirectories;
+    private final boolean myPreviewImageThumbnails;
+    private final boolean myPreviewArchiveEntries;
+    private final boolean myPreviewSyntaxHighlightingOnly;
+    private final boolean myEventRecording;
+
+    private final String myPreviewTabTitlePattern;
+    // prefix & suffix of the file name if the pattern contains a single placeholder only, null otherwise
+    private final String myPreviewTabTitlePrefix;
+    private final String myPreviewTabTitleSuffix;
+    private final Color myPreviewTabColor;
+    private final PreviewQualifier myQualifier;
+
+    PreviewSettingsSnapshot(@NotNull PreviewSettings.OptionSet options) {
+        myPreviewClosedOnEmptySelection = options.CLOSE_PREVIEW_ON_EMPTY_SELECTION;
+        myPreviewClosedOnTabChange = options.CLOSE_PREVIEW_ON_TAB_CHANGE;
+        myOpenEditorOnEditPreview = options.OPEN_EDITOR_ON_EDIT_PREVIEW;
+        myPreviewBehavior = options.PREVIEW_BEHAVIOR;
+        myProjectViewToggleOneClick = options.PROJECT_VIEW_TOGGLE_ONE_CLICK;
+        myKeepExpandCollapseState = options.KEEP_EXPAND_COLLAPSE_STATE;
+        myFileSizeLimitKB = options.PREVIEW_FILE_SIZE_LIMIT_KB == null ? 0 : options.PREVIEW_FILE_SIZE_LIMIT_KB;
+        myPreviewOnlyKnownFileTypes = options.PREVIEW_ONLY_KNOWN_FILE_TYPES;
+        mySelectionSettleTimeMs = options.PREVIEW_SELECTION_SETTLE_TIME_MS == null ? 0 : options.PREVIEW_SELECTION_SETTLE_TIME_MS;
+        myPreviewOversizedFilesReadOnly = options.PREVIEW_OVERSIZED_FILES_READ_ONLY;
+        myPreviewReuseEditor = options.PREVIEW_REUSE_EDITOR;
+        myPreviewRingSize = options.PREVIEW_RING_SIZE == null ? 1 : Math.max(1, options.PREVIEW_RING_SIZE);
+        myExcludedPatterns = options.PREVIEW_EXCLUDED_PATTERNS == null ? "" : options.PREVIEW_EXCLUDED_PATTERNS;
+        myFileTypeSizeLimits = options.PREVIEW_FILE_TYPE_SIZE_LIMITS == null ? "" : options.PREVIEW_FILE_TYPE_SIZE_LIMITS;
+        mySniffBinaryContent = options.PREVIEW_SNIFF_BINARY_CONTENT;
+        myPrefetchEnabled = options.PREVIEW_PREFETCH_ENABLED;
+        myPrefetchBudgetKB = options.PREVIEW_PREFETCH_BUDGET_KB == null ? 0 : options.PREVIEW_PREFETCH_BUDGET_KB;
+        myPreviewInPopup = options.PREVIEW_IN_POPUP;
+        myPreviewDirectories = options.PREVIEW_DIRECTORIES;
+        myPreviewImageThumbnails = options.PREVIEW_IMAGE_THUMBNAILS;
+        myPreviewArchiveEntries = options.PREVIEW_ARCHIVE_ENTRIES;
+        myPreviewSyntaxHighlightingOnly = options.PREVIEW_SYNTAX_HIGHLIGHTING_ONLY;
+        myEventRecording = options.PREVIEW_EVENT_RECORDING;
+
+        myPreviewTabTitlePattern = options.PREVIEW_TAB_TITLE_PATTERN;
+        String pattern = myPreviewTabTitlePattern == null ? "" : myPreviewTabTitlePattern;
+        int placeholderIndex = pattern.indexOf(FILE_NAME_PLACEHOLDER);
+        if (placeholderIndex >= 0 && pattern.indexOf('%') == placeholderIndex && pattern.indexOf('%', placeholderIndex + 1) == -1) {
+            myPreviewTabTitlePrefix = pattern.substring(0, placeholderIndex);
+            myPreviewTabTitleSuffix = pattern.substring(placeholderIndex + FILE_NAME_PLACEHOLDER.length());
+        } else {
+            myPreviewTabTitlePrefix = null;
+            myPreviewTabTitleSuffix = null;
+        }
+        myPreviewTabColor = decodeColor(options.PREVIEW_TAB_COLOR);
+        myQualifier = new PreviewQualifier(createQualificationRules());
+    }
+
+    /**
+     * Cheap rules first - the binary content sniffing is the only one touching the disk.
+     */
+    private List<PreviewQualificationRule> createQualificationRules() {
+        List<PreviewQualificationRule> rules = new ArrayList<>();
+        PathPatternRule pathPatternRule = new PathPatternRule(splitList(myExcludedPatterns));
+        if (!pathPatternRule.isEmpty()) {
+            rules.add(pathPatternRule);
+        }
+        if (myPreviewOnlyKnownFileTypes) {
+            rules.add(new KnownFileTypeRule());
+        }
+        FileSizeRule fileSizeRule = new FileSizeRule(myFileSizeLimitKB * 1024L, parseFileTypeSizeLimits(myFileTypeSizeLimits), myPreviewOversizedFilesReadOnly);
+        if (!fileSizeRule.isEmpty()) {
+            rules.add(fileSizeRule);
+        }
+        if (mySniffBinaryContent) {
+            rules.add(new BinaryContentRule());
+        }
+        return rules;
+    }
+
+    private static List<String> splitList(String list) {
+        List<String> result = new ArrayList<>();
+        for (String entry : list.split("[;\\n]")) {
+            String trimmed = entry.trim();
+            if (!trimmed.isEmpty()) {
+                result.add(trimmed);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses "FileTypeName=KB" entries - invalid entries are ignored.
+     */
+    static Map<String, Long> parseFileTypeSizeLimits(String fileTypeSizeLimits) {
+        Map<String, Long> limits = new HashMap<>();
+        for (String entry : splitList(fileTypeSizeLimits)) {
+            int separatorIndex = entry.lastIndexOf('=');
+            if (separatorIndex <= 0) {
+                continue;
+            }
+            try {
+                long limitKB = Long.parseLong(entry.substring(separatorIndex + 1).trim());
+                limits.put(entry.substring(0, separatorIndex).trim().toLowerCase(Locale.ROOT), Math.max(0, limitKB) * 1024L);
+            } catch (NumberFormatException exc) {
+                // ignore invalid entry
+            }
+        }
+        return limits.isEmpty() ? Collections.emptyMap() : limits;
+    }
+
+    private static Color decodeColor(String color) {
+        try {
+            return color == null || color.isEmpty() ? null : Color.decode(color);
+        } catch (NumberFormatException exc) {
+            return null;
+        }
+    }
+
+    public boolean isPreviewClosedOnEmptySelection() {
+        return myPreviewClosedOnEmptySelection;
+    }
+
+    public boolean isPreviewClosedOnTabChange() {
+        return myPreviewClosedOnTabChange;
+    }
+
+    public boolean isOpenEditorOnEditPreview() {
+        return myOpenEditorOnEditPreview;
+    }
+
+    public PreviewSettings.PreviewBehavior getPreviewBehavior() {
+        return myPreviewBehavior;
+    }
+
+    public boolean isProjectViewToggleOneClick() {
+        return myProjectViewToggleOneClick;
+    }
+
+    public boolean isKeepExpandCollapseState() {
+        return myKeepExpandCollapseState;
+    }
+
+    public int getFileSizeLimitKB() {
+        return myFileSizeLimitKB;
+    }
+
+    public boolean isPreviewOnlyKnownFileTypes() {
+        return myPreviewOnlyKnownFileTypes;
+    }
+
+    public int getSelectionSettleTimeMs() {
+        return mySelectionSettleTimeMs;
+    }
+
+    public boolean isPreviewOversizedFilesReadOnly() {
+        return myPreviewOversizedFilesReadOnly;
+    }
+
+    public boolean isPreviewReuseEditor() {
+        return myPreviewReuseEditor;
+    }
+
+    public int getPreviewRingSize() {
+        return myPreviewRingSize;
+    }
+
+    public String getExcludedPatterns() {
+        return myExcludedPatterns;
+    }
+
+    public String getFileTypeSizeLimits() {
+        return myFileTypeSizeLimits;
+    }
+
+    public boolean isSniffBinaryContent() {
+        return mySniffBinaryContent;
+    }
+
+    public boolean isPrefetchEnabled() {
+        return myPrefetchEnabled;
+    }
+
+    public int getPrefetchBudgetKB() {
+        return myPrefetchBudgetKB;
+    }
+
+    public boolean isPreviewInPopup() {
+        return myPreviewInPopup;
+    }
+
+    public boolean isPreviewDirectories() {
+        return myPreviewDirectories;
+    }
+
+    public boolean isPreviewImageThumbnails() {
+        return myPreviewImageThumbnails;
+    }
+
+    public boolean isPreviewArchiveEntries() {
+        return myPreviewArchiveEntries;
+    }
+
+    public boolean isPreviewSyntaxHighlightingOnly() {
+        return myPreviewSyntaxHighlightingOnly;
+    }
+
+    public boolean isEventRecording() {
+        return myEventRecording;
+    }
+
+    @NotNull
+    public PreviewQualifier getQualifier() {
+        return myQualifier;
+    }
+
+    public String getPreviewTabTitlePattern() {
+        return myPreviewTabTitlePattern;
+    }
+
+    @Nullable
+    public Color getPreviewTabColor() {
+        return myPreviewTabColor;
+    }
+
+    @Nullable
+    public String formatPreviewTabTitle(@NotNull String fileName) {
+        String title;
+        if (myPreviewTabTitlePrefix != null) {
+            title = myPreviewTabTitlePrefix + fileName + myPreviewTabTitleSuffix;
+        } else {
+            title = myPreviewTabTitlePattern == null ? null : String.format(myPreviewTabTitlePattern, fileName);
+        }
+        return title == null || title.isEmpty() ? null : title;
+    }
+}
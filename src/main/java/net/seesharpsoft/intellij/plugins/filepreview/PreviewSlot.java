@@ -0,0 +1,92 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.ex.FileEditorManagerEx;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFile;
+import net.seesharpsoft.intellij.plugins.filepreview.editor.PreviewSlotFile;
+import net.seesharpsoft.intellij.plugins.filepreview.editor.PreviewViewerRing;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single preview tab per project whose content is swapped on selection changes - avoids creating and disposing an editor per previewed file.
+ * The viewers of the most recently previewed files are kept in a {@link PreviewViewerRing}.
+ */
+public final class PreviewSlot implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(PreviewSlot.class);
+
+    private final Project myProject;
+    private final PreviewSlotFile mySlotFile = new PreviewSlotFile();
+    private PreviewViewerRing myViewerRing;
+
+    private final AtomicLong myAvoidedEditorCreationCount = new AtomicLong();
+    private final AtomicLong myAvoidedEditorDisposalCount = new AtomicLong();
+
+    public static PreviewSlot getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, PreviewSlot.class);
+    }
+
+    public PreviewSlot(@NotNull Project project) {
+        myProject = project;
+    }
+
+    @NotNull
+    public PreviewSlotFile getSlotFile() {
+        return mySlotFile;
+    }
+
+    @NotNull
+    public PreviewViewerRing getViewerRing() {
+        if (myViewerRing == null) {
+            myViewerRing = new PreviewViewerRing(myProject, PreviewSettings.getInstance().getSnapshot().getPreviewRingSize());
+            Disposer.register(this, myViewerRing);
+        }
+        return myViewerRing;
+    }
+
+    public boolean show(@NotNull VirtualFile file, boolean requestFocus) {
+        PreviewViewerRing viewerRing = getViewerRing();
+        viewerRing.setCapacity(PreviewSettings.getInstance().getSnapshot().getPreviewRingSize());
+        if (!viewerRing.show(file)) {
+            return false;
+        }
+        mySlotFile.setDisplayedFile(file);
+
+        final FileEditorManagerEx fileEditorManager = FileEditorManagerEx.getInstanceEx(myProject);
+        if (fileEditorManager.isFileOpen(mySlotFile)) {
+            // the content was swapped - otherwise the previous preview editor would have been disposed and a new one created
+            myAvoidedEditorCreationCount.incrementAndGet();
+            myAvoidedEditorDisposalCount.incrementAndGet();
+            fileEditorManager.updateFilePresentation(mySlotFile);
+        } else {
+            PreviewUtil.preparePreview(myProject, mySlotFile);
+        }
+        fileEditorManager.openFile(mySlotFile, requestFocus);
+        return true;
+    }
+
+    public long getAvoidedEditorCreationCount() {
+        return myAvoidedEditorCreationCount.get();
+    }
+
+    public long getAvoidedEditorDisposalCount() {
+        return myAvoidedEditorDisposalCount.get();
+    }
+
+    public long getRingHitCount() {
+        return myViewerRing == null ? 0 : myViewerRing.getRingHitCount();
+    }
+
+    @Override
+    public void dispose() {
+        LOG.info(String.format("preview slot - avoided editor creations: %d, avoided editor disposals: %d, ring hits: %d",
+                getAvoidedEditorCreationCount(), getAvoidedEditorDisposalCount(), getRingHitCount()));
+        myViewerRing = null;
+    }
+}
@@ -11,11 +11,15 @@ import com.intellij.openapi.wm.ToolWindowId;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.openapi.wm.ex.ToolWindowManagerListener;
 import com.intellij.util.messages.MessageBusConnection;
-import net.seesharpsoft.intellij.plugins.filepreview.viewhandler.ProjectToolWindowHandler;
+import net.seesharpsoft.intellij.plugins.filepreview.metrics.PreviewMetrics;
+import net.seesharpsoft.intellij.plugins.filepreview.metrics.PreviewStartupPhase;
+import net.seesharpsoft.intellij.plugins.filepreview.trace.PreviewEventRecorder;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
-import java.util.Map;
+import javax.swing.*;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -23,23 +27,32 @@ public class PreviewStartupActivity implements StartupActivity, DumbAware {
 
     protected ConcurrentMap<Project, PreviewProjectHandler> myPreviewHandlerMap = new ConcurrentHashMap<>();
 
-    public static final Map<String, PreviewViewHandler> SUPPORTED_TOOLWINDOWS_WITH_TREES;
-
-    static {
-        SUPPORTED_TOOLWINDOWS_WITH_TREES = new HashMap<>();
-        SUPPORTED_TOOLWINDOWS_WITH_TREES.put(ToolWindowId.PROJECT_VIEW, new ProjectToolWindowHandler());
-//        SUPPORTED_TOOLWINDOWS_WITH_TREES.put(ToolWindowId.VCS, new VcsToolWindowHandler());
-    }
+    private final Set<Project> myScheduledInitializations = ConcurrentHashMap.newKeySet();
 
     protected void initialize(Project project, MessageBusConnection connection) {
+        if (isInitialized(project) || !myScheduledInitializations.add(project)) {
+            return;
+        }
         ApplicationManager.getApplication().invokeLater(() -> {
-            if (isInitialized(project) || project.isDisposed()) {
-                return;
-            }
+            try {
+                if (isInitialized(project) || project.isDisposed()) {
+                    return;
+                }
 
-            PreviewProjectHandler projectHandler = new PreviewProjectHandler(project, connection);
-            myPreviewHandlerMap.put(project, projectHandler);
-            registerAllToolWindows(project);
+                long startTime = System.nanoTime();
+                // services the project handler depends on
+                PreviewSettings.getInstance();
+                PreviewEventRecorder.getInstance(project);
+                long servicesCreatedTime = System.nanoTime();
+                PreviewProjectHandler projectHandler = new PreviewProjectHandler(project, connection);
+                myPreviewHandlerMap.put(project, projectHandler);
+                long handlerConstructedTime = System.nanoTime();
+                registerAllToolWindows(project);
+                PreviewMetrics.getInstance().startupFinished(project,
+                        servicesCreatedTime - startTime, handlerConstructedTime - servicesCreatedTime, System.nanoTime() - handlerConstructedTime);
+            } finally {
+                myScheduledInitializations.remove(project);
+            }
         });
     }
 
@@ -55,13 +68,13 @@ public class PreviewStartupActivity implements StartupActivity, DumbAware {
     }
 
     protected void registerAllToolWindows(Project project) {
-        for (String toolWindowId : SUPPORTED_TOOLWINDOWS_WITH_TREES.keySet()) {
-            registerToolWindow(project, toolWindowId);
+        for (String toolWindowId : PreviewViewHandlerRegistry.getInstance().getToolWindowIds()) {
+            registerToolWindowOnFirstShow(project, toolWindowId);
         }
     }
 
     protected void unregisterAllToolWindows(Project project) {
-        for (String toolWindowId : SUPPORTED_TOOLWINDOWS_WITH_TREES.keySet()) {
+        for (String toolWindowId : PreviewViewHandlerRegistry.getInstance().getToolWindowIds()) {
             unregisterToolWindow(project, toolWindowId);
         }
     }
@@ -70,20 +83,65 @@ public class PreviewStartupActivity implements StartupActivity, DumbAware {
         return myPreviewHandlerMap.containsKey(project);
     }
 
-    protected void registerToolWindow(Project project, String toolWindowId) {
-        if (!isInitialized(project) || !SUPPORTED_TOOLWINDOWS_WITH_TREES.keySet().contains(toolWindowId)) {
+    /**
+     * Only the Project View is handled right away - any other tool window is activated when shown the first time.
+     */
+    protected void registerToolWindowOnFirstShow(Project project, String toolWindowId) {
+        PreviewProjectHandler previewProjectHandler = myPreviewHandlerMap.get(project);
+        if (previewProjectHandler == null || previewProjectHandler.isToolWindowActivated(toolWindowId) ||
+                !PreviewViewHandlerRegistry.getInstance().isSupported(toolWindowId)) {
+            return;
+        }
+        ToolWindow toolWindow = ToolWindowManager.getInstance(project).getToolWindow(toolWindowId);
+        if (toolWindow == null) {
+            return;
+        }
+        if (ToolWindowId.PROJECT_VIEW.equals(toolWindowId) || toolWindow.isVisible()) {
+            registerToolWindow(project, toolWindowId);
             return;
         }
+        // event driven instead of checking all pending tool windows on every tool window state change
+        JComponent component = toolWindow.getComponent();
+        HierarchyListener showListener = new HierarchyListener() {
+            @Override
+            public void hierarchyChanged(HierarchyEvent event) {
+                if ((event.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && component.isShowing()) {
+                    long startTime = System.nanoTime();
+                    registerToolWindow(project, toolWindowId);
+                    PreviewMetrics.getInstance().recordStartup(PreviewStartupPhase.LAZY_TREE_REGISTRATION, System.nanoTime() - startTime);
+                }
+            }
+        };
+        if (previewProjectHandler.addPendingToolWindowActivation(toolWindowId, () -> component.removeHierarchyListener(showListener))) {
+            component.addHierarchyListener(showListener);
+        }
+    }
+
+    protected void registerToolWindow(Project project, String toolWindowId) {
+        PreviewViewHandler viewHandler = PreviewViewHandlerRegistry.getInstance().getHandler(toolWindowId);
         PreviewProjectHandler previewProjectHandler = myPreviewHandlerMap.get(project);
-        SUPPORTED_TOOLWINDOWS_WITH_TREES.get(toolWindowId).register(previewProjectHandler);
+        if (viewHandler == null || previewProjectHandler == null) {
+            return;
+        }
+        previewProjectHandler.removePendingToolWindowActivation(toolWindowId);
+        if (previewProjectHandler.activateToolWindow(toolWindowId)) {
+            viewHandler.register(previewProjectHandler);
+        }
     }
 
     protected void unregisterToolWindow(Project project, String toolWindowId) {
-        if (!isInitialized(project) || !SUPPORTED_TOOLWINDOWS_WITH_TREES.keySet().contains(toolWindowId)) {
+        PreviewProjectHandler previewProjectHandler = myPreviewHandlerMap.get(project);
+        if (previewProjectHandler == null) {
             return;
         }
-        PreviewProjectHandler previewProjectHandler = myPreviewHandlerMap.get(project);
-        SUPPORTED_TOOLWINDOWS_WITH_TREES.get(toolWindowId).unregister(previewProjectHandler);
+        previewProjectHandler.removePendingToolWindowActivation(toolWindowId);
+        if (!previewProjectHandler.deactivateToolWindow(toolWindowId)) {
+            return;
+        }
+        PreviewViewHandler viewHandler = PreviewViewHandlerRegistry.getInstance().getHandler(toolWindowId);
+        if (viewHandler != null) {
+            viewHandler.unregister(previewProjectHandler);
+        }
     }
 
     @Override
@@ -96,11 +154,11 @@ public class PreviewStartupActivity implements StartupActivity, DumbAware {
         connection.subscribe(ToolWindowManagerListener.TOPIC, new ToolWindowManagerListener() {
             @Override
             public void toolWindowRegistered(@NotNull String id) {
-                ToolWindow toolWindow = ToolWindowManager.getInstance(activityProject).getToolWindow(id);
-                if (toolWindow != null && !isInitialized(activityProject)) {
+                if (isInitialized(activityProject)) {
+                    registerToolWindowOnFirstShow(activityProject, id);
+                } else {
                     initialize(activityProject, connection);
                 }
-                registerToolWindow(activityProject, id);
             }
 
             @Override
@@ -113,8 +171,8 @@ public class PreviewStartupActivity implements StartupActivity, DumbAware {
 
             @Override
             public void stateChanged() {
-                ToolWindow window = ToolWindowManager.getInstance(activityProject).getToolWindow(ToolWindowId.PROJECT_VIEW);
-                if (window != null && !isInitialized(activityProject)) {
+                // called on every tool window change - nothing to do once initialized
+                if (!isInitialized(activityProject)) {
                     initialize(activityProject, connection);
                 }
             }
@@ -1,13 +1,17 @@
 package net.seesharpsoft.intellij.plugins.filepreview;
 
 import com.intellij.codeInsight.TargetElementUtil;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.ide.DataManager;
 import com.intellij.ide.projectView.ProjectView;
+import com.intellij.ide.projectView.ProjectViewNode;
 import com.intellij.ide.projectView.impl.AbstractProjectViewPane;
+import com.intellij.ide.util.treeView.AbstractTreeNode;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.actionSystem.DataContext;
 import com.intellij.openapi.actionSystem.PlatformDataKeys;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.application.TransactionGuard;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.event.DocumentListener;
@@ -15,21 +19,37 @@ import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileEditor.FileEditor;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.ex.FileEditorManagerEx;
-import com.intellij.openapi.fileTypes.FileType;
-import com.intellij.openapi.fileTypes.UnknownFileType;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.ActionCallback;
 import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowId;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileSystemItem;
 import com.intellij.psi.PsiManager;
+import com.intellij.testFramework.LightVirtualFile;
+import com.intellij.util.ui.tree.TreeUtil;
+import net.seesharpsoft.intellij.plugins.filepreview.archive.PreviewArchivePreview;
+import net.seesharpsoft.intellij.plugins.filepreview.directory.PreviewDirectoryPreview;
+import net.seesharpsoft.intellij.plugins.filepreview.image.PreviewImagePreview;
+import net.seesharpsoft.intellij.plugins.filepreview.metrics.PreviewLatencyStage;
+import net.seesharpsoft.intellij.plugins.filepreview.metrics.PreviewLatencyTrace;
+import net.seesharpsoft.intellij.plugins.filepreview.qualification.PreviewQualification;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import javax.swing.*;
+import javax.swing.tree.TreePath;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Consumer;
 
 public final class PreviewUtil {
@@ -37,13 +57,15 @@ public final class PreviewUtil {
         // util
     }
 
-    public static final Key<DocumentListener> PREVIEW_DOCUMENT_LISTENER = Key.create(PreviewUtil.class.getName() + "$PREVIEW_DOCUMENT_LISTENER_INSTANCE");
     // marking of files that are opened/closed due to interactions that requires further handling
     public static final Key<Boolean> REQUIRES_PREVIEW_HANDLING = Key.create(PreviewUtil.class.getName() + "$HANDLED_BY_PREVIEW");
-    public static final Key<Boolean> SOURCE_WINDOW_IS_AUTO_HIDE = Key.create(PreviewUtil.class.getName() + "$SOURCE_WINDOW_IS_AUTO_HIDE");
+    // tree the current preview was selected in - focus returns there instead of always to the Project View
+    public static final Key<Component> PREVIEW_SOURCE_COMPONENT = Key.create(PreviewUtil.class.getName() + "$PREVIEW_SOURCE_COMPONENT");
+    // set on the project while previews are closed in a batch - focus is restored once afterwards instead of per closed file
+    public static final Key<Boolean> CLOSING_PREVIEWS = Key.create(PreviewUtil.class.getName() + "$CLOSING_PREVIEWS");
 
-    public static boolean isPreviewed(final VirtualFile file) {
-        return file != null && file.getUserData(PreviewProjectHandler.PREVIEW_VIRTUAL_FILE_KEY) != null;
+    public static boolean isPreviewed(final Project project, final VirtualFile file) {
+        return isValid(project) && PreviewRegistry.getInstance(project).isPreviewed(file);
     }
 
     public static void disposePreview(final Project project, final VirtualFile file) {
@@ -51,46 +73,77 @@ public final class PreviewUtil {
     }
 
     public static void disposePreview(final Project project, final VirtualFile file, final boolean updateRepresentation) {
-        if (!isValid(project) || file == null || !isPreviewed(file)) {
+        final PreviewRegistry previewRegistry = isValid(project) ? PreviewRegistry.getInstance(project) : null;
+        if (previewRegistry == null || file == null || !previewRegistry.unregister(file)) {
             return;
         }
 
-        file.putUserData(PreviewProjectHandler.PREVIEW_VIRTUAL_FILE_KEY, null);
-
-        final Document document = FileDocumentManager.getInstance().getDocument(file);
-        final DocumentListener documentListener = document == null ? null : document.getUserData(PREVIEW_DOCUMENT_LISTENER);
-        if (documentListener != null) {
-            document.putUserData(PREVIEW_DOCUMENT_LISTENER, null);
+        final DocumentListener documentListener = previewRegistry.removeDocumentListener(file);
+        // the document is not loaded again only to remove the listener - it is gone together with the document
+        final Document document = documentListener == null ? null : FileDocumentManager.getInstance().getCachedDocument(file);
+        if (document != null) {
             document.removeDocumentListener(documentListener);
         }
 
+        // the full analysis applies again - see PreviewHighlightingSettingProvider
+        restartHighlighting(project, file);
+
         if (updateRepresentation) {
             FileEditorManagerEx.getInstanceEx(project).updateFilePresentation(file);
         }
     }
 
     public static void preparePreview(final Project project, final VirtualFile file) {
-        if (!isValid(project) || file == null || isPreviewed(file)) {
+        final PreviewRegistry previewRegistry = isValid(project) ? PreviewRegistry.getInstance(project) : null;
+        if (previewRegistry == null || file == null || !previewRegistry.register(file)) {
             return;
         }
 
-        file.putUserData(PreviewProjectHandler.PREVIEW_VIRTUAL_FILE_KEY, file.getName());
-
-        if (PreviewSettings.getInstance().isOpenEditorOnEditPreview()) {
+        // oversized files are shown in a read-only viewer - loading the document must be avoided
+        if (PreviewSettings.getInstance().getSnapshot().isOpenEditorOnEditPreview() && !isFileOversized(file)) {
             Document document = FileDocumentManager.getInstance().getDocument(file);
             if (document != null) {
                 DocumentListener documentListener = new PreviewDocumentListener(project);
                 document.addDocumentListener(documentListener);
-                document.putUserData(PREVIEW_DOCUMENT_LISTENER, documentListener);
+                // kept per project - the document is shared by all open projects
+                previewRegistry.putDocumentListener(file, documentListener);
             }
         }
+        // a file shown already gets the reduced analysis right away - see PreviewHighlightingSettingProvider
+        if (FileEditorManager.getInstance(project).isFileOpen(file)) {
+            restartHighlighting(project, file);
+        }
+    }
+
+    private static void restartHighlighting(@NotNull final Project project, @NotNull final VirtualFile file) {
+        if (!PreviewSettings.getInstance().getSnapshot().isPreviewSyntaxHighlightingOnly() || file instanceof LightVirtualFile || isFileOversized(file)) {
+            return;
+        }
+        final PsiFile psiFile = findPsiFile(project, file);
+        if (psiFile != null) {
+            DaemonCodeAnalyzer.getInstance(project).restart(psiFile);
+        }
+    }
+
+    @Nullable
+    private static PsiFile findPsiFile(@NotNull final Project project, @NotNull final VirtualFile file) {
+        return ReadAction.compute(() -> file.isValid() ? PsiManager.getInstance(project).findFile(file) : null);
     }
 
     public static VirtualFile getGotoFile(final Project project, final VirtualFile file) {
         if (!isValid(project) || file == null) {
             return null;
         }
+        PreviewGotoFileCache gotoFileCache = PreviewGotoFileCache.getInstance(project);
+        if (DumbService.isDumb(project)) {
+            // no PSI while indexing - the raw file is used unless its goto file is known already
+            VirtualFile cachedGotoFile = gotoFileCache.peek(file);
+            return cachedGotoFile == null ? file : cachedGotoFile;
+        }
+        return gotoFileCache.get(file, theFile -> resolveGotoFile(project, theFile));
+    }
 
+    private static VirtualFile resolveGotoFile(final Project project, final VirtualFile file) {
         PsiElement element = PsiManager.getInstance(project).findFile(file);
         if (element != null) {
             PsiElement navElement = element.getNavigationElement();
@@ -119,7 +172,13 @@ public final class PreviewUtil {
     }
 
     public static VirtualFile getFileFromDataContext(@NotNull final DataContext dataContext) {
-        return CommonDataKeys.VIRTUAL_FILE.getData(dataContext);
+        VirtualFile file = CommonDataKeys.VIRTUAL_FILE.getData(dataContext);
+        if (file != null) {
+            return file;
+        }
+        // e.g. Find results provide the files of the selected usages only
+        VirtualFile[] files = CommonDataKeys.VIRTUAL_FILE_ARRAY.getData(dataContext);
+        return files != null && files.length == 1 ? files[0] : null;
     }
 
     public static boolean isEditorSelected(@NotNull final Project project, final VirtualFile file) {
@@ -133,72 +192,241 @@ public final class PreviewUtil {
     }
 
     public static boolean isProjectTreeFocused(@NotNull final Project project) {
-        return getCurrentProjectViewPane(project).getTree().hasFocus();
+        AbstractProjectViewPane currentProjectViewPane = getCurrentProjectViewPane(project);
+        return currentProjectViewPane != null && currentProjectViewPane.getTree().hasFocus();
     }
 
-    private static void openPreviewOrEditor(@NotNull final Project project, final VirtualFile file, final boolean requestFocus) {
+    public static void openPreviewOrEditor(@NotNull final Project project, final VirtualFile file, final boolean requestFocus) {
+        openPreviewOrEditor(project, file, requestFocus, true);
+    }
+
+    /**
+     * @param restoreFocus whether the focus returns to the tree the preview was selected in after opening a new preview
+     */
+    public static synchronized void openPreviewOrEditor(@NotNull final Project project, final VirtualFile file, final boolean requestFocus, final boolean restoreFocus) {
+        if (isValid(project) && file != null && file.isDirectory() && file.isValid() && showDirectoryPreview(project, file, restoreFocus)) {
+            finishLatencyTraceWhenVisible(project);
+            return;
+        }
+        if (isValid(project) && PreviewSettings.getInstance().getSnapshot().isPreviewDirectories()) {
+            // selection moved away from the directory - its walk is not needed anymore
+            PreviewDirectoryPreview.getInstance(project).cancel();
+        }
         if (!isValid(project) || file == null || file.isDirectory() || !file.isValid()) {
-            if (PreviewSettings.getInstance().isPreviewClosedOnEmptySelection() && !isAutoScrollFromSource(project)) {
+            if (isValid(project)) {
+                PreviewLatencyTrace.cancel(project);
+            }
+            if (PreviewSettings.getInstance().getSnapshot().isPreviewClosedOnEmptySelection() && !isAutoScrollFromSource(project)) {
                 closeOtherPreviews(project, file);
+                hidePreviewPopup(project);
             }
             return;
         }
         final FileEditorManager fileEditorManager = FileEditorManager.getInstance(project);
+        if (!fileEditorManager.isFileOpen(file) && showArchivePreview(project, file, restoreFocus)) {
+            finishLatencyTraceWhenVisible(project);
+            return;
+        }
+        if (!fileEditorManager.isFileOpen(file) && showImagePreview(project, file, restoreFocus)) {
+            finishLatencyTraceWhenVisible(project);
+            return;
+        }
+        if (!fileEditorManager.isFileOpen(file) && showInPreviewPopup(project, file)) {
+            finishLatencyTraceWhenVisible(project);
+            return;
+        }
+        hidePreviewPopup(project);
+        if (!fileEditorManager.isFileOpen(file) && showInPreviewSlot(project, file, requestFocus, restoreFocus)) {
+            finishLatencyTraceWhenVisible(project);
+            return;
+        }
         final boolean requireFocus;
-        if (!fileEditorManager.isFileOpen(file)) {
+        final boolean isNewPreview = !fileEditorManager.isFileOpen(file);
+        if (isNewPreview) {
             PreviewUtil.preparePreview(project, file);
+            PreviewLatencyTrace.mark(project, PreviewLatencyStage.DOCUMENT_LOAD);
             requireFocus = true;
         } else {
             requireFocus = !isEditorSelected(project, file);
         }
 
         invokeSafeAndWait(project, () -> {
-            fileEditorManager.openFile(file, requestFocus);
-            if (requireFocus) {
+            FileEditor[] fileEditors = fileEditorManager.openFile(file, requestFocus);
+            if (isNewPreview && isPreviewed(project, file)) {
+                PreviewViewportCache.getInstance(project).restore(file, fileEditors);
+            }
+            if (requireFocus && restoreFocus) {
                 focusProjectView(project);
             }
         });
+        finishLatencyTraceWhenVisible(project);
+    }
+
+    private static void finishLatencyTraceWhenVisible(@NotNull final Project project) {
+        // the editor is visible as soon as the repaint events queued by opening it are processed
+        invokeSafe(project, () -> PreviewLatencyTrace.finish(project, PreviewLatencyStage.EDITOR_OPEN));
+    }
+
+    private static boolean showInPreviewPopup(@NotNull final Project project, @NotNull final VirtualFile file) {
+        if (!PreviewSettings.getInstance().getSnapshot().isPreviewInPopup() || isFileOversized(file)) {
+            return false;
+        }
+        if (!PreviewPopup.getInstance(project).show(file, project.getUserData(PREVIEW_SOURCE_COMPONENT))) {
+            // no text content to show or no tree to show the popup at - open standard preview
+            return false;
+        }
+        closeOtherPreviews(project, null);
+        return true;
+    }
+
+    private static boolean showDirectoryPreview(@NotNull final Project project, @NotNull final VirtualFile directory, final boolean restoreFocus) {
+        if (!PreviewSettings.getInstance().getSnapshot().isPreviewDirectories() || !isFileQualifiedForPreview(directory)) {
+            return false;
+        }
+        final PreviewDirectoryPreview directoryPreview = PreviewDirectoryPreview.getInstance(project);
+        if (!directoryPreview.show(directory)) {
+            return false;
+        }
+        hidePreviewPopup(project);
+        closeOtherPreviews(project, directoryPreview.getDirectoryFile());
+        if (restoreFocus) {
+            focusProjectView(project);
+        }
+        return true;
+    }
+
+    private static boolean showArchivePreview(@NotNull final Project project, @NotNull final VirtualFile file, final boolean restoreFocus) {
+        if (!PreviewSettings.getInstance().getSnapshot().isPreviewArchiveEntries() || !isFileQualifiedForPreview(file)) {
+            return false;
+        }
+        final PreviewArchivePreview archivePreview = PreviewArchivePreview.getInstance(project);
+        if (!archivePreview.show(file)) {
+            return false;
+        }
+        hidePreviewPopup(project);
+        closeOtherPreviews(project, archivePreview.getArchiveFile());
+        if (restoreFocus) {
+            focusProjectView(project);
+        }
+        return true;
+    }
+
+    private static boolean showImagePreview(@NotNull final Project project, @NotNull final VirtualFile file, final boolean restoreFocus) {
+        if (!PreviewSettings.getInstance().getSnapshot().isPreviewImageThumbnails() || !isFileQualifiedForPreview(file)) {
+            return false;
+        }
+        final PreviewImagePreview imagePreview = PreviewImagePreview.getInstance(project);
+        if (!imagePreview.show(file)) {
+            return false;
+        }
+        hidePreviewPopup(project);
+        closeOtherPreviews(project, imagePreview.getImageFile());
+        if (restoreFocus) {
+            focusProjectView(project);
+        }
+        return true;
+    }
+
+    public static void hidePreviewPopup(@NotNull final Project project) {
+        if (isValid(project) && PreviewSettings.getInstance().getSnapshot().isPreviewInPopup()) {
+            PreviewPopup.getInstance(project).hide();
+        }
+    }
+
+    private static boolean showInPreviewSlot(@NotNull final Project project, @NotNull final VirtualFile file, final boolean requestFocus, final boolean restoreFocus) {
+        if (!PreviewSettings.getInstance().getSnapshot().isPreviewReuseEditor() || isFileOversized(file)) {
+            return false;
+        }
+        final PreviewSlot previewSlot = PreviewSlot.getInstance(project);
+        if (!previewSlot.show(file, requestFocus)) {
+            // no text content to show (e.g. binary files) - open standard preview
+            return false;
+        }
+        closeOtherPreviews(project, previewSlot.getSlotFile());
+        if (restoreFocus) {
+            focusProjectView(project);
+        }
+        return true;
     }
 
     public static synchronized void openPreviewOrEditor(@NotNull final Project project, final Component component, final boolean requestFocus) {
-        consumeDataContext(component, dataContext -> {
-            openPreviewOrEditor(project, getGotoFile(project, getFileFromDataContext(dataContext)), requestFocus);
-        });
+        consumeSelectedFile(component, file -> openPreviewOrEditor(project, getGotoFile(project, file), requestFocus));
     }
 
     public static void openPreviewOrEditor(@NotNull final Project project, final Component component) {
         openPreviewOrEditor(project, component, false);
     }
 
-    public static synchronized void closeFileEditor(final Project project, final VirtualFile file) {
-        if (!isValid(project) || file == null) {
-            return;
+    public static void closeFileEditor(final Project project, final VirtualFile file) {
+        if (file != null) {
+            closeFileEditors(project, Collections.singletonList(file));
         }
-        final ToolWindow projectViewToolWindow = ToolWindowManager.getInstance(project).getToolWindow(ToolWindowId.PROJECT_VIEW);
-        if (projectViewToolWindow == null) {
+    }
+
+    /**
+     * Closes the editors of all given files in a single EDT pass - the Project View auto-hide state is saved and restored once.
+     */
+    public static synchronized void closeFileEditors(final Project project, @NotNull final Collection<VirtualFile> files) {
+        if (!isValid(project) || files.isEmpty()) {
             return;
         }
+        // previews are closed even without Project View (e.g. previews of other trees)
+        final ToolWindow projectViewToolWindow = ToolWindowManager.getInstance(project).getToolWindow(ToolWindowId.PROJECT_VIEW);
         final FileEditorManagerEx fileEditorManager = FileEditorManagerEx.getInstanceEx(project);
-        assert fileEditorManager.isFileOpen(file);
         invokeSafeAndWait(project, () -> {
             // Project panel auto-hides after file selecting #50
-            file.putUserData(SOURCE_WINDOW_IS_AUTO_HIDE, projectViewToolWindow.isAutoHide());
-            projectViewToolWindow.setAutoHide(false);
-            fileEditorManager.closeFile(file);
+            final boolean autoHide = projectViewToolWindow != null && projectViewToolWindow.isAutoHide();
+            if (projectViewToolWindow != null) {
+                projectViewToolWindow.setAutoHide(false);
+            }
+            boolean previewClosed = false;
+            project.putUserData(CLOSING_PREVIEWS, Boolean.TRUE);
+            try {
+                for (VirtualFile file : files) {
+                    if (fileEditorManager.isFileOpen(file)) {
+                        previewClosed |= file.getUserData(REQUIRES_PREVIEW_HANDLING) != null;
+                        fileEditorManager.closeFile(file);
+                    }
+                }
+            } finally {
+                project.putUserData(CLOSING_PREVIEWS, null);
+                if (projectViewToolWindow != null) {
+                    projectViewToolWindow.setAutoHide(autoHide);
+                }
+            }
+            if (previewClosed) {
+                focusProjectView(project);
+            }
         });
     }
 
     public static void closeAllPreviews(@NotNull final Project project) {
         closeOtherPreviews(project, null);
+        hidePreviewPopup(project);
     }
 
     public static void closeOtherPreviews(@NotNull final Project project, @Nullable final VirtualFile currentPreview) {
+        if (!isValid(project)) {
+            return;
+        }
+        final PreviewRegistry previewRegistry = PreviewRegistry.getInstance(project);
+        if (previewRegistry.isEmpty()) {
+            return;
+        }
         final FileEditorManager fileEditorManager = FileEditorManager.getInstance(project);
-        for (VirtualFile file : fileEditorManager.getOpenFiles()) {
-            if (isPreviewed(file) && !file.equals(currentPreview)) {
-                closeFileEditor(project, file);
+        final List<VirtualFile> previewsToClose = new ArrayList<>();
+        for (VirtualFile file : previewRegistry.getPreviewedFiles()) {
+            if (file.equals(currentPreview)) {
+                continue;
+            }
+            if (fileEditorManager.isFileOpen(file)) {
+                previewsToClose.add(file);
+            } else {
+                // editor is gone already (e.g. closed while the project was busy) - only the registration is left
+                disposePreview(project, file, false);
             }
         }
+        closeFileEditors(project, previewsToClose);
     }
 
     public static void consumeDataContext(final Component component, final Consumer<DataContext> dataContextConsumer) {
@@ -208,8 +436,45 @@ public final class PreviewUtil {
         }));
     }
 
+    /**
+     * Known node types are resolved from the tree model directly - the data context is only used as fallback.
+     * The consumer is always called in a transaction later on, as it may open or close editors.
+     */
     public static void consumeSelectedFile(final Component tree, Consumer<VirtualFile> consumer) {
-        consumeDataContext(tree, context -> consumer.accept(getFileFromDataContext(context)));
+        Ref<VirtualFile> selectedFile = getSelectedFileFromTreeModel(tree);
+        if (selectedFile == null) {
+            consumeDataContext(tree, context -> consumer.accept(getFileFromDataContext(context)));
+            return;
+        }
+        TransactionGuard.submitTransaction(ApplicationManager.getApplication(), () -> consumer.accept(selectedFile.get()));
+    }
+
+    /**
+     * @return the file of the single selected node (which can be null, e.g. for non-file nodes) - null if the node type is not known
+     */
+    @Nullable
+    public static Ref<VirtualFile> getSelectedFileFromTreeModel(final Component component) {
+        if (!(component instanceof JTree)) {
+            return null;
+        }
+        TreePath[] selectionPaths = ((JTree) component).getSelectionPaths();
+        if (selectionPaths == null || selectionPaths.length == 0) {
+            return Ref.create(null);
+        }
+        return selectionPaths.length == 1 ? getNodeFile(selectionPaths[0]) : null;
+    }
+
+    @Nullable
+    private static Ref<VirtualFile> getNodeFile(@NotNull final TreePath path) {
+        Object userObject = TreeUtil.getUserObject(path.getLastPathComponent());
+        if (userObject instanceof ProjectViewNode) {
+            return Ref.create(((ProjectViewNode) userObject).getVirtualFile());
+        }
+        Object value = userObject instanceof AbstractTreeNode ? ((AbstractTreeNode) userObject).getValue() : userObject;
+        if (value instanceof PsiFileSystemItem) {
+            return Ref.create(((PsiFileSystemItem) value).getVirtualFile());
+        }
+        return value instanceof VirtualFile ? Ref.create((VirtualFile) value) : null;
     }
 
     private static ActionCallback getReady(DataContext context, Object requester) {
@@ -222,23 +487,21 @@ public final class PreviewUtil {
     }
 
     public static void cleanupClosedFile(final Project project, @NotNull final VirtualFile file) {
-        // Project panel auto-hides after file selecting #50
-        if (file.getUserData(SOURCE_WINDOW_IS_AUTO_HIDE) != null && file.getUserData(SOURCE_WINDOW_IS_AUTO_HIDE)) {
-            final ToolWindow projectViewToolWindow = ToolWindowManager.getInstance(project).getToolWindow(ToolWindowId.PROJECT_VIEW);
-            if (projectViewToolWindow != null) {
-                projectViewToolWindow.setAutoHide(true);
-            }
-        }
-        file.putUserData(SOURCE_WINDOW_IS_AUTO_HIDE, null);
-
         if (file.getUserData(PreviewUtil.REQUIRES_PREVIEW_HANDLING) == null) {
             return;
         }
         unmarkPreviewHandling(file);
-        focusProjectView(project);
+        if (project.getUserData(CLOSING_PREVIEWS) == null) {
+            focusProjectView(project);
+        }
     }
 
     public static void focusProjectView(final Project project) {
+        Component previewSource = project.getUserData(PREVIEW_SOURCE_COMPONENT);
+        if (previewSource instanceof JComponent && previewSource.isShowing()) {
+            PreviewUtil.invokeSafe(project, () -> ((JComponent) previewSource).grabFocus());
+            return;
+        }
         AbstractProjectViewPane currentProjectViewPane = getCurrentProjectViewPane(project);
         if (currentProjectViewPane == null) {
             return;
@@ -266,30 +529,24 @@ public final class PreviewUtil {
     }
 
     private static boolean isFileQualifiedForPreview(VirtualFile file) {
+        return isFileQualifiedForPreview(file, PreviewSettings.getInstance().getSnapshot());
+    }
 
-        boolean qualified = isFileQualifiedBySize(file);
-        if (qualified) {
-            qualified = isFileQualifiedByType(file);
-        }
-        return qualified;
+    static boolean isFileQualifiedForPreview(VirtualFile file, PreviewSettingsSnapshot previewSettings) {
+        return getQualification(file, previewSettings) != PreviewQualification.REJECTED;
     }
 
-    private static boolean isFileQualifiedBySize(VirtualFile file) {
-        int fileSizeLimit = PreviewSettings.getInstance().getFileSizeLimitKB() * 1024;
-        if (fileSizeLimit > 0) {
-            long fileLength = file.getLength();
-            return fileLength <= fileSizeLimit;
-        }
-        return true;
+    public static boolean isFileOversized(VirtualFile file) {
+        return isFileOversized(file, PreviewSettings.getInstance().getSnapshot());
     }
 
-    private static boolean isFileQualifiedByType(VirtualFile file) {
-        boolean previewOnlyKnownFileTypes = PreviewSettings.getInstance().isPreviewOnlyKnownFileTypes();
-        if (previewOnlyKnownFileTypes) {
-            FileType type = file.getFileType();
-            return (!type.isBinary()) && (type != UnknownFileType.INSTANCE);
-        }
-        return true;
+    private static boolean isFileOversized(VirtualFile file, PreviewSettingsSnapshot previewSettings) {
+        return getQualification(file, previewSettings) == PreviewQualification.OVERSIZED;
+    }
+
+    @NotNull
+    public static PreviewQualification getQualification(@NotNull VirtualFile file, @NotNull PreviewSettingsSnapshot previewSettings) {
+        return previewSettings.getQualifier().qualify(file);
     }
 
     public static void toggleMarkPreviewHandling(VirtualFile file) {
@@ -317,10 +574,21 @@ public final class PreviewUtil {
     }
 
     public static boolean isAutoScrollToSource(final Project project) {
-        return getProjectView(project).isAutoscrollToSource(getCurrentProjectViewPane(project).getId());
+        AbstractProjectViewPane currentProjectViewPane = getCurrentProjectViewPane(project);
+        return currentProjectViewPane != null && getProjectView(project).isAutoscrollToSource(currentProjectViewPane.getId());
     }
 
     public static boolean isAutoScrollFromSource(final Project project) {
-        return getProjectView(project).isAutoscrollFromSource(getCurrentProjectViewPane(project).getId());
+        AbstractProjectViewPane currentProjectViewPane = getCurrentProjectViewPane(project);
+        return currentProjectViewPane != null && getProjectView(project).isAutoscrollFromSource(currentProjectViewPane.getId());
+    }
+
+    /**
+     * Cheap lookup of the file represented by a tree node - no data context involved.
+     */
+    @Nullable
+    public static VirtualFile getVirtualFile(@NotNull final TreePath path) {
+        Ref<VirtualFile> file = getNodeFile(path);
+        return file == null ? null : file.get();
     }
 }
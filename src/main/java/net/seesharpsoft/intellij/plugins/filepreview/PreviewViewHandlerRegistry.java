@@ -0,0 +1,63 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.openapi.wm.ToolWindowId;
+import net.seesharpsoft.intellij.plugins.filepreview.viewhandler.ProjectToolWindowHandler;
+import net.seesharpsoft.intellij.plugins.filepreview.viewhandler.TreeToolWindowHandler;
+import net.seesharpsoft.intellij.plugins.filepreview.viewhandler.VcsToolWindowHandler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Tool windows with trees supporting preview - a handler is only created when a project shows its tool window the first time.
+ * Handlers are shared by all projects.
+ */
+public final class PreviewViewHandlerRegistry {
+
+    private static final PreviewViewHandlerRegistry INSTANCE = new PreviewViewHandlerRegistry();
+
+    static {
+        INSTANCE.register(ToolWindowId.PROJECT_VIEW, ProjectToolWindowHandler::new);
+        INSTANCE.register(ToolWindowId.VCS, VcsToolWindowHandler::new);
+        INSTANCE.register(ToolWindowId.STRUCTURE_VIEW, () -> new TreeToolWindowHandler(ToolWindowId.STRUCTURE_VIEW));
+        INSTANCE.register(ToolWindowId.TODO_VIEW, () -> new TreeToolWindowHandler(ToolWindowId.TODO_VIEW));
+        INSTANCE.register(ToolWindowId.FAVORITES_VIEW, () -> new TreeToolWindowHandler(ToolWindowId.FAVORITES_VIEW));
+        INSTANCE.register(ToolWindowId.FIND, () -> new TreeToolWindowHandler(ToolWindowId.FIND));
+    }
+
+    private final ConcurrentMap<String, Supplier<PreviewViewHandler>> myHandlerFactories = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, PreviewViewHandler> myHandlers = new ConcurrentHashMap<>();
+
+    public static PreviewViewHandlerRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public void register(@NotNull String toolWindowId, @NotNull Supplier<PreviewViewHandler> handlerFactory) {
+        myHandlerFactories.put(toolWindowId, handlerFactory);
+        myHandlers.remove(toolWindowId);
+    }
+
+    public boolean isSupported(@Nullable String toolWindowId) {
+        return toolWindowId != null && myHandlerFactories.containsKey(toolWindowId);
+    }
+
+    @NotNull
+    public Set<String> getToolWindowIds() {
+        return Collections.unmodifiableSet(myHandlerFactories.keySet());
+    }
+
+    public int size() {
+        return myHandlerFactories.size();
+    }
+
+    @Nullable
+    public PreviewViewHandler getHandler(@NotNull String toolWindowId) {
+        Supplier<PreviewViewHandler> handlerFactory = myHandlerFactories.get(toolWindowId);
+        return handlerFactory == null ? null : myHandlers.computeIfAbsent(toolWindowId, id -> handlerFactory.get());
+    }
+}
@@ -0,0 +1,130 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.LogicalPosition;
+import com.intellij.openapi.editor.ScrollingModel;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.TextEditor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileWithId;
+import com.intellij.util.ui.update.UiNotifyConnector;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per project LRU cache of the last viewport of previewed files - caret offset and top visible line are packed into a single long,
+ * keyed by file id, so no editor or file is referenced.
+ */
+public final class PreviewViewportCache {
+
+    public static final int MAX_CACHE_SIZE = 512;
+
+    private final Map<Integer, Long> myCache = new LinkedHashMap<Integer, Long>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+
+    private final AtomicLong myRestoreCount = new AtomicLong();
+
+    public static PreviewViewportCache getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, PreviewViewportCache.class);
+    }
+
+    public void save(@NotNull VirtualFile file, @NotNull FileEditor[] fileEditors) {
+        for (FileEditor fileEditor : fileEditors) {
+            if (fileEditor instanceof TextEditor) {
+                save(file, ((TextEditor) fileEditor).getEditor());
+                return;
+            }
+        }
+    }
+
+    public void save(@NotNull VirtualFile file, @NotNull Editor editor) {
+        if (!(file instanceof VirtualFileWithId) || editor.isDisposed()) {
+            return;
+        }
+        int caretOffset = editor.getCaretModel().getOffset();
+        int topLine = editor.xyToLogicalPosition(new Point(0, editor.getScrollingModel().getVerticalScrollOffset())).line;
+        synchronized (myCache) {
+            myCache.put(((VirtualFileWithId) file).getId(), pack(caretOffset, topLine));
+        }
+    }
+
+    public void restore(@NotNull VirtualFile file, @NotNull FileEditor[] fileEditors) {
+        for (FileEditor fileEditor : fileEditors) {
+            if (fileEditor instanceof TextEditor) {
+                restore(file, ((TextEditor) fileEditor).getEditor());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Only the caret and the top line are set - the scroll position is derived from the line, no layout of the document is required.
+     * The editor is scrolled when shown the next time if it isn't showing yet, as scrolling a viewport without size has no effect.
+     */
+    public void restore(@NotNull VirtualFile file, @NotNull Editor editor) {
+        if (!(file instanceof VirtualFileWithId)) {
+            return;
+        }
+        Long viewport;
+        synchronized (myCache) {
+            viewport = myCache.get(((VirtualFileWithId) file).getId());
+        }
+        if (viewport == null) {
+            return;
+        }
+        myRestoreCount.incrementAndGet();
+        // the file might have changed meanwhile
+        final int caretOffset = Math.min(getCaretOffset(viewport), editor.getDocument().getTextLength());
+        final int topLine = Math.min(getTopLine(viewport), Math.max(0, editor.getDocument().getLineCount() - 1));
+        editor.getCaretModel().moveToOffset(caretOffset);
+
+        Runnable scroll = () -> {
+            if (editor.isDisposed()) {
+                return;
+            }
+            ScrollingModel scrollingModel = editor.getScrollingModel();
+            scrollingModel.disableAnimation();
+            scrollingModel.scrollVertically(editor.logicalPositionToXY(new LogicalPosition(topLine, 0)).y);
+            scrollingModel.enableAnimation();
+        };
+        JComponent component = editor.getContentComponent();
+        if (component.isShowing()) {
+            scroll.run();
+        } else {
+            UiNotifyConnector.doWhenFirstShown(component, scroll);
+        }
+    }
+
+    static long pack(int caretOffset, int topLine) {
+        return ((long) caretOffset << 32) | (topLine & 0xFFFFFFFFL);
+    }
+
+    static int getCaretOffset(long viewport) {
+        return (int) (viewport >>> 32);
+    }
+
+    static int getTopLine(long viewport) {
+        return (int) viewport;
+    }
+
+    public int size() {
+        synchronized (myCache) {
+            return myCache.size();
+        }
+    }
+
+    public long getRestoreCount() {
+        return myRestoreCount.get();
+    }
+}
@@ -0,0 +1,77 @@
+package net.seesharpsoft.intellij.plugins.filepreview.archive;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.ex.EditorEx;
+import com.intellij.openapi.editor.highlighter.EditorHighlighterFactory;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import net.seesharpsoft.intellij.plugins.filepreview.editor.PreviewFileEditorBase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+
+public class PreviewArchiveEditor extends PreviewFileEditorBase {
+
+    private static final String LOADING_TEXT = "Loading...";
+
+    private final Project myProject;
+    private final Document myDocument;
+    private final EditorEx myEditor;
+
+    private VirtualFile myEntry;
+
+    public PreviewArchiveEditor(@NotNull Project project, @NotNull PreviewArchiveFile file) {
+        super(file);
+        myProject = project;
+        myDocument = EditorFactory.getInstance().createDocument("");
+        myEditor = (EditorEx) EditorFactory.getInstance().createViewer(myDocument, project);
+        myEditor.getSettings().setLineNumbersShown(true);
+        myEditor.getSettings().setFoldingOutlineShown(false);
+        if (file.getEntry() != null) {
+            setEntry(file.getEntry(), file.getText());
+        }
+    }
+
+    /**
+     * @param text null while the entry is loading
+     */
+    public void setEntry(@NotNull VirtualFile entry, @Nullable CharSequence text) {
+        ApplicationManager.getApplication().runWriteAction(() -> myDocument.setText(text == null ? LOADING_TEXT : text));
+        if (!entry.equals(myEntry)) {
+            // e.g. class files are highlighted as their decompiled language
+            myEditor.setHighlighter(EditorHighlighterFactory.getInstance().createEditorHighlighter(myProject, entry));
+            myEntry = entry;
+        }
+        myEditor.getCaretModel().moveToOffset(0);
+        myEditor.getScrollingModel().scrollVertically(0);
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "Archive Entry Preview";
+    }
+
+    @NotNull
+    @Override
+    public JComponent getComponent() {
+        return myEditor.getComponent();
+    }
+
+    @Nullable
+    @Override
+    public JComponent getPreferredFocusedComponent() {
+        return myEditor.getContentComponent();
+    }
+
+    @Override
+    public void dispose() {
+        if (!myEditor.isDisposed()) {
+            EditorFactory.getInstance().releaseEditor(myEditor);
+        }
+        myEntry = null;
+    }
+}
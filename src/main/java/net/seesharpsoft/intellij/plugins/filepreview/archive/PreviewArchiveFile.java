@@ -0,0 +1,44 @@
+package net.seesharpsoft.intellij.plugins.filepreview.archive;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.LightVirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Placeholder file of the archive entry preview tab - the shown entry changes while the tab stays open.
+ */
+public class PreviewArchiveFile extends LightVirtualFile {
+
+    private VirtualFile myEntry;
+    private CharSequence myText;
+
+    public PreviewArchiveFile() {
+        super("Archive Entry");
+        setWritable(false);
+    }
+
+    @Nullable
+    public VirtualFile getEntry() {
+        return myEntry;
+    }
+
+    /**
+     * @return null while the entry is loading
+     */
+    @Nullable
+    public CharSequence getText() {
+        return myText;
+    }
+
+    public void setEntry(@NotNull VirtualFile entry, @Nullable CharSequence text) {
+        myEntry = entry;
+        myText = text;
+    }
+
+    @NotNull
+    @Override
+    public String getPresentableName() {
+        return myEntry == null ? super.getPresentableName() : myEntry.getPresentableName();
+    }
+}
@@ -0,0 +1,225 @@
+package net.seesharpsoft.intellij.plugins.filepreview.archive;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.ex.FileEditorManagerEx;
+import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
+import com.intellij.openapi.fileTypes.BinaryFileTypeDecompilers;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.util.ProgressIndicatorBase;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.LowMemoryWatcher;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.ArchiveFileSystem;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only preview of entries inside archives (e.g. JARs of libraries) - only the selected entry is inflated, and decompiled if binary,
+ * off the EDT. The texts of recently previewed entries are cached (LRU, bounded by number of chars) until the archive changes.
+ */
+public final class PreviewArchivePreview implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(PreviewArchivePreview.class);
+
+    public static final long MAX_CACHE_CHARS = 4L * 1024 * 1024;
+
+    private final Project myProject;
+    private final PreviewArchiveFile myArchiveFile = new PreviewArchiveFile();
+
+    private volatile ProgressIndicator myCurrentIndicator;
+
+    // access ordered - eldest entry is the least recently previewed entry
+    private final LinkedHashMap<String, CharSequence> myCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long myCacheChars;
+
+    private final AtomicLong myHitCount = new AtomicLong();
+    private final AtomicLong myMissCount = new AtomicLong();
+
+    public static PreviewArchivePreview getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, PreviewArchivePreview.class);
+    }
+
+    public PreviewArchivePreview(@NotNull Project project) {
+        myProject = project;
+        LowMemoryWatcher.register(this::clear, this);
+    }
+
+    public static boolean isArchiveEntry(@NotNull VirtualFile file) {
+        return !file.isDirectory() && file.getFileSystem() instanceof ArchiveFileSystem;
+    }
+
+    @NotNull
+    public PreviewArchiveFile getArchiveFile() {
+        return myArchiveFile;
+    }
+
+    /**
+     * @return false if the file is no archive entry or has no text presentation (binary without decompiler)
+     */
+    public boolean show(@NotNull VirtualFile entry) {
+        if (!isArchiveEntry(entry) || !hasTextPresentation(entry.getFileType())) {
+            return false;
+        }
+        cancel();
+
+        final String cacheKey = getCacheKey(entry);
+        CharSequence text;
+        synchronized (myCache) {
+            text = myCache.get(cacheKey);
+        }
+        if (text != null) {
+            myHitCount.incrementAndGet();
+            open(entry, text);
+            return true;
+        }
+        myMissCount.incrementAndGet();
+        open(entry, null);
+        load(entry, cacheKey);
+        return true;
+    }
+
+    private void load(@NotNull VirtualFile entry, @NotNull String cacheKey) {
+        final ProgressIndicator indicator = new ProgressIndicatorBase();
+        myCurrentIndicator = indicator;
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            final Ref<CharSequence> loadedText = Ref.create();
+            // a long decompilation gives way to any write action instead of blocking it
+            if (!ProgressIndicatorUtils.runInReadActionWithWriteActionPriority(() -> loadedText.set(loadText(entry)), indicator)) {
+                // interrupted by a write action - restart if no newer request came in meanwhile
+                PreviewUtil.invokeSafe(myProject, () -> {
+                    if (myCurrentIndicator == indicator) {
+                        load(entry, cacheKey);
+                    }
+                });
+                return;
+            }
+            if (loadedText.get() == null) {
+                return;
+            }
+            put(cacheKey, loadedText.get());
+            ApplicationManager.getApplication().invokeLater(() -> {
+                if (myCurrentIndicator != indicator || !PreviewUtil.isValid(myProject)) {
+                    return;
+                }
+                myCurrentIndicator = null;
+                myArchiveFile.setEntry(entry, loadedText.get());
+                update(entry, loadedText.get());
+            }, ModalityState.defaultModalityState(), myProject.getDisposed());
+        });
+    }
+
+    private static boolean hasTextPresentation(@NotNull FileType fileType) {
+        return !fileType.isBinary() || BinaryFileTypeDecompilers.INSTANCE.forFileType(fileType) != null;
+    }
+
+    /**
+     * Called in a read action. The archive handler of the platform keeps the archive open - only the requested entry is inflated.
+     */
+    @Nullable
+    private static CharSequence loadText(@NotNull VirtualFile entry) {
+        if (!entry.isValid()) {
+            return null;
+        }
+        try {
+            if (entry.getFileType().isBinary()) {
+                // decompiled presentation, e.g. of class files
+                return LoadTextUtil.loadText(entry);
+            }
+            return LoadTextUtil.getTextByBinaryPresentation(entry.contentsToByteArray(), entry);
+        } catch (ProcessCanceledException exc) {
+            throw exc;
+        } catch (IOException | RuntimeException exc) {
+            LOG.debug("archive entry could not be loaded: " + entry, exc);
+            return null;
+        }
+    }
+
+    /**
+     * The time stamp of the archive is part of the key - entries of a rebuilt archive are loaded again.
+     */
+    @NotNull
+    private static String getCacheKey(@NotNull VirtualFile entry) {
+        VirtualFile archive = ((ArchiveFileSystem) entry.getFileSystem()).getLocalByEntry(entry);
+        return entry.getUrl() + "@" + (archive == null ? -1 : archive.getTimeStamp());
+    }
+
+    private void put(@NotNull String cacheKey, @NotNull CharSequence text) {
+        synchronized (myCache) {
+            CharSequence previous = myCache.put(cacheKey, text);
+            if (previous != null) {
+                myCacheChars -= previous.length();
+            }
+            myCacheChars += text.length();
+            Iterator<CharSequence> eldest = myCache.values().iterator();
+            while (myCacheChars > MAX_CACHE_CHARS && eldest.hasNext()) {
+                myCacheChars -= eldest.next().length();
+                eldest.remove();
+            }
+        }
+    }
+
+    private void open(@NotNull VirtualFile entry, @Nullable CharSequence text) {
+        myArchiveFile.setEntry(entry, text);
+        FileEditorManagerEx fileEditorManager = FileEditorManagerEx.getInstanceEx(myProject);
+        if (fileEditorManager.isFileOpen(myArchiveFile)) {
+            update(entry, text);
+            fileEditorManager.updateFilePresentation(myArchiveFile);
+        } else {
+            PreviewUtil.preparePreview(myProject, myArchiveFile);
+        }
+        // keep focus in the tree for keyboard navigation
+        fileEditorManager.openFile(myArchiveFile, false);
+    }
+
+    private void update(@NotNull VirtualFile entry, @Nullable CharSequence text) {
+        for (FileEditor fileEditor : FileEditorManagerEx.getInstanceEx(myProject).getEditors(myArchiveFile)) {
+            if (fileEditor instanceof PreviewArchiveEditor) {
+                ((PreviewArchiveEditor) fileEditor).setEntry(entry, text);
+            }
+        }
+    }
+
+    public void cancel() {
+        ProgressIndicator indicator = myCurrentIndicator;
+        myCurrentIndicator = null;
+        if (indicator != null) {
+            indicator.cancel();
+        }
+    }
+
+    public void clear() {
+        synchronized (myCache) {
+            myCache.clear();
+            myCacheChars = 0;
+        }
+    }
+
+    public long getHitCount() {
+        return myHitCount.get();
+    }
+
+    public long getMissCount() {
+        return myMissCount.get();
+    }
+
+    @Override
+    public void dispose() {
+        cancel();
+        clear();
+    }
+}
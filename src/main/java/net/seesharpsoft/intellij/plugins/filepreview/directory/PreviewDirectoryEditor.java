@@ -0,0 +1,48 @@
+package net.seesharpsoft.intellij.plugins.filepreview.directory;
+
+import com.intellij.openapi.editor.colors.EditorColorsManager;
+import com.intellij.openapi.editor.colors.EditorColorsScheme;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.components.JBTextArea;
+import com.intellij.util.ui.JBUI;
+import net.seesharpsoft.intellij.plugins.filepreview.editor.PreviewFileEditorBase;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+
+public class PreviewDirectoryEditor extends PreviewFileEditorBase {
+
+    private final JBTextArea myTextArea;
+    private final JBScrollPane myScrollPane;
+
+    public PreviewDirectoryEditor(@NotNull PreviewDirectoryFile file) {
+        super(file);
+        EditorColorsScheme scheme = EditorColorsManager.getInstance().getGlobalScheme();
+        myTextArea = new JBTextArea();
+        myTextArea.setEditable(false);
+        myTextArea.setFont(new Font(scheme.getEditorFontName(), Font.PLAIN, scheme.getEditorFontSize()));
+        myTextArea.setBorder(JBUI.Borders.empty(4));
+        myScrollPane = new JBScrollPane(myTextArea);
+        if (file.getStatistics() != null) {
+            setStatistics(file.getStatistics());
+        }
+    }
+
+    public void setStatistics(@NotNull PreviewDirectoryStatistics statistics) {
+        myTextArea.setText(statistics.getReport());
+        myTextArea.setCaretPosition(0);
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "Directory Preview";
+    }
+
+    @NotNull
+    @Override
+    public JComponent getComponent() {
+        return myScrollPane;
+    }
+}
@@ -0,0 +1,37 @@
+package net.seesharpsoft.intellij.plugins.filepreview.directory;
+
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.FileEditorPolicy;
+import com.intellij.openapi.fileEditor.FileEditorProvider;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+public class PreviewDirectoryEditorProvider implements FileEditorProvider, DumbAware {
+
+    public static final String EDITOR_TYPE_ID = "quick-file-preview-directory";
+
+    @Override
+    public boolean accept(@NotNull Project project, @NotNull VirtualFile file) {
+        return file instanceof PreviewDirectoryFile;
+    }
+
+    @NotNull
+    @Override
+    public FileEditor createEditor(@NotNull Project project, @NotNull VirtualFile file) {
+        return new PreviewDirectoryEditor((PreviewDirectoryFile) file);
+    }
+
+    @NotNull
+    @Override
+    public String getEditorTypeId() {
+        return EDITOR_TYPE_ID;
+    }
+
+    @NotNull
+    @Override
+    public FileEditorPolicy getPolicy() {
+        return FileEditorPolicy.HIDE_DEFAULT_EDITOR;
+    }
+}
@@ -0,0 +1,33 @@
+package net.seesharpsoft.intellij.plugins.filepreview.directory;
+
+import com.intellij.testFramework.LightVirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Placeholder file of the directory preview tab - the shown directory changes while the tab stays open.
+ */
+public class PreviewDirectoryFile extends LightVirtualFile {
+
+    private String myTitle;
+    private PreviewDirectoryStatistics myStatistics;
+
+    public PreviewDirectoryFile() {
+        super("Directory");
+        setWritable(false);
+    }
+
+    public PreviewDirectoryStatistics getStatistics() {
+        return myStatistics;
+    }
+
+    public void setStatistics(@NotNull String title, @NotNull PreviewDirectoryStatistics statistics) {
+        myTitle = title;
+        myStatistics = statistics;
+    }
+
+    @NotNull
+    @Override
+    public String getPresentableName() {
+        return myTitle == null ? super.getPresentableName() : myTitle;
+    }
+}
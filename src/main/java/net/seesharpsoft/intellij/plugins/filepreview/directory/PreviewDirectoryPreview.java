@@ -0,0 +1,266 @@
+package net.seesharpsoft.intellij.plugins.filepreview.directory;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.ex.FileEditorManagerEx;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.util.ProgressIndicatorBase;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Summary preview of a selected directory - the statistics are collected in the background and shown while the walk is in progress.
+ * Completed statistics are cached (LRU) until a VFS event occurs below the directory, the directory itself is modified or the entry expires.
+ * The walker bypasses the VFS, so no events are fired for changes below subtrees never loaded - the expiry bounds how stale those get.
+ * A newer request cancels the walk in progress.
+ */
+public final class PreviewDirectoryPreview implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(PreviewDirectoryPreview.class);
+
+    public static final int MAX_CACHE_SIZE = 32;
+    public static final int PUBLISH_INTERVAL_MS = 200;
+    public static final long CACHE_TTL_MS = 60_000;
+
+    private final Project myProject;
+    private final PreviewDirectoryFile myDirectoryFile = new PreviewDirectoryFile();
+
+    private volatile ProgressIndicator myCurrentIndicator;
+    // directory of the walk in progress and whether it was invalidated meanwhile
+    private volatile String myWalkPath;
+    private volatile AtomicBoolean myWalkInvalidated;
+
+    private final Map<String, CachedStatistics> myCache = new LinkedHashMap<String, CachedStatistics>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedStatistics> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+
+    private final AtomicLong myHitCount = new AtomicLong();
+    private final AtomicLong myMissCount = new AtomicLong();
+
+    public static PreviewDirectoryPreview getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, PreviewDirectoryPreview.class);
+    }
+
+    public PreviewDirectoryPreview(@NotNull Project project) {
+        myProject = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                invalidate(events);
+            }
+        });
+    }
+
+    @NotNull
+    public PreviewDirectoryFile getDirectoryFile() {
+        return myDirectoryFile;
+    }
+
+    /**
+     * @return false if the directory can not be previewed (e.g. not in the local file system)
+     */
+    public boolean show(@NotNull VirtualFile directory) {
+        if (!directory.isDirectory() || !directory.isInLocalFileSystem()) {
+            return false;
+        }
+        cancel();
+
+        final String path = directory.getPath();
+        final Path root = Paths.get(FileUtil.toSystemDependentName(path));
+        final long rootLastModified = getLastModified(root);
+        CachedStatistics cachedStatistics;
+        synchronized (myCache) {
+            cachedStatistics = myCache.get(path);
+            if (cachedStatistics != null && !cachedStatistics.isValid(rootLastModified)) {
+                myCache.remove(path);
+                cachedStatistics = null;
+            }
+        }
+        if (cachedStatistics != null) {
+            myHitCount.incrementAndGet();
+            open(directory.getName(), cachedStatistics.myStatistics);
+            return true;
+        }
+        myMissCount.incrementAndGet();
+
+        final ProgressIndicator indicator = new ProgressIndicatorBase();
+        final AtomicBoolean invalidated = new AtomicBoolean();
+        final PreviewDirectoryWalker walker = new PreviewDirectoryWalker(root, indicator);
+        myCurrentIndicator = indicator;
+        myWalkPath = path;
+        myWalkInvalidated = invalidated;
+        open(directory.getName(), walker.snapshot(false));
+
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            Future<?> walk = walker.start();
+            while (!walk.isDone()) {
+                try {
+                    walk.get(PUBLISH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException exc) {
+                    if (indicator.isCanceled()) {
+                        return;
+                    }
+                    // stream intermediate result
+                    publish(indicator, walker.snapshot(false));
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException | CancellationException exc) {
+                    LOG.debug("directory walk failed", exc);
+                    return;
+                }
+            }
+            if (indicator.isCanceled()) {
+                return;
+            }
+            PreviewDirectoryStatistics completeStatistics = walker.snapshot(true);
+            if (!invalidated.get()) {
+                synchronized (myCache) {
+                    myCache.put(path, new CachedStatistics(completeStatistics, rootLastModified));
+                }
+            }
+            publish(indicator, completeStatistics);
+        });
+        return true;
+    }
+
+    private static long getLastModified(@NotNull Path path) {
+        try {
+            return Files.getLastModifiedTime(path, LinkOption.NOFOLLOW_LINKS).toMillis();
+        } catch (IOException exc) {
+            return -1;
+        }
+    }
+
+    private void open(@NotNull String title, @NotNull PreviewDirectoryStatistics statistics) {
+        myDirectoryFile.setStatistics(title, statistics);
+        FileEditorManagerEx fileEditorManager = FileEditorManagerEx.getInstanceEx(myProject);
+        if (fileEditorManager.isFileOpen(myDirectoryFile)) {
+            update(statistics);
+            fileEditorManager.updateFilePresentation(myDirectoryFile);
+        } else {
+            PreviewUtil.preparePreview(myProject, myDirectoryFile);
+        }
+        // keep focus in the tree for keyboard navigation
+        fileEditorManager.openFile(myDirectoryFile, false);
+    }
+
+    private void update(@NotNull PreviewDirectoryStatistics statistics) {
+        for (FileEditor fileEditor : FileEditorManagerEx.getInstanceEx(myProject).getEditors(myDirectoryFile)) {
+            if (fileEditor instanceof PreviewDirectoryEditor) {
+                ((PreviewDirectoryEditor) fileEditor).setStatistics(statistics);
+            }
+        }
+    }
+
+    private void publish(@NotNull ProgressIndicator indicator, @NotNull PreviewDirectoryStatistics statistics) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (myCurrentIndicator != indicator || !PreviewUtil.isValid(myProject)) {
+                return;
+            }
+            if (statistics.isComplete()) {
+                myCurrentIndicator = null;
+            }
+            myDirectoryFile.setStatistics(myDirectoryFile.getPresentableName(), statistics);
+            update(statistics);
+        }, ModalityState.defaultModalityState(), myProject.getDisposed());
+    }
+
+    private void invalidate(@NotNull List<? extends VFileEvent> events) {
+        List<String> paths = new ArrayList<>();
+        for (VFileEvent event : events) {
+            paths.add(event.getPath());
+            if (event instanceof VFileMoveEvent) {
+                paths.add(((VFileMoveEvent) event).getOldParent().getPath());
+            }
+        }
+        String walkPath = myWalkPath;
+        AtomicBoolean walkInvalidated = myWalkInvalidated;
+        if (walkPath != null && walkInvalidated != null && isAncestorOfAny(walkPath, paths)) {
+            walkInvalidated.set(true);
+        }
+        synchronized (myCache) {
+            myCache.keySet().removeIf(directoryPath -> isAncestorOfAny(directoryPath, paths));
+        }
+    }
+
+    private static boolean isAncestorOfAny(@NotNull String directoryPath, @NotNull List<String> paths) {
+        for (String path : paths) {
+            if (FileUtil.isAncestor(directoryPath, path, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class CachedStatistics {
+        private final PreviewDirectoryStatistics myStatistics;
+        // of the root directory when the walk started - changes of direct children are detected without any event
+        private final long myRootLastModified;
+        private final long myCreationTime = System.currentTimeMillis();
+
+        CachedStatistics(@NotNull PreviewDirectoryStatistics statistics, long rootLastModified) {
+            myStatistics = statistics;
+            myRootLastModified = rootLastModified;
+        }
+
+        boolean isValid(long rootLastModified) {
+            return rootLastModified == myRootLastModified && System.currentTimeMillis() - myCreationTime < CACHE_TTL_MS;
+        }
+    }
+
+    public void cancel() {
+        ProgressIndicator indicator = myCurrentIndicator;
+        myCurrentIndicator = null;
+        if (indicator != null) {
+            indicator.cancel();
+        }
+    }
+
+    public long getHitCount() {
+        return myHitCount.get();
+    }
+
+    public long getMissCount() {
+        return myMissCount.get();
+    }
+
+    @Override
+    public void dispose() {
+        cancel();
+        synchronized (myCache) {
+            myCache.clear();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package net.seesharpsoft.intellij.plugins.filepreview.directory;
+
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable (intermediate) result of walking a directory - intermediate results are shown while the walk is still in progress.
+ */
+public final class PreviewDirectoryStatistics {
+
+    public static final class Entry {
+        private final String myPath;
+        private final boolean myDirectory;
+        private final long mySize;
+
+        public Entry(@NotNull String path, boolean directory, long size) {
+            myPath = path;
+            myDirectory = directory;
+            mySize = size;
+        }
+
+        @NotNull
+        public String getPath() {
+            return myPath;
+        }
+
+        public boolean isDirectory() {
+            return myDirectory;
+        }
+
+        public long getSize() {
+            return mySize;
+        }
+    }
+
+    private final String myDirectoryPath;
+    private final List<Entry> myChildren;
+    private final long myTotalSize;
+    private final long myFileCount;
+    private final long myDirectoryCount;
+    private final Map<String, Long> myFileTypeHistogram;
+    private final List<Entry> myLargestFiles;
+    private final boolean myComplete;
+
+    PreviewDirectoryStatistics(@NotNull String directoryPath,
+                               @NotNull List<Entry> children,
+                               long totalSize,
+                               long fileCount,
+                               long directoryCount,
+                               @NotNull Map<String, Long> fileTypeHistogram,
+                               @NotNull List<Entry> largestFiles,
+                               boolean complete) {
+        myDirectoryPath = directoryPath;
+        myChildren = Collections.unmodifiableList(children);
+        myTotalSize = totalSize;
+        myFileCount = fileCount;
+        myDirectoryCount = directoryCount;
+        myFileTypeHistogram = Collections.unmodifiableMap(fileTypeHistogram);
+        myLargestFiles = Collections.unmodifiableList(largestFiles);
+        myComplete = complete;
+    }
+
+    @NotNull
+    public String getDirectoryPath() {
+        return myDirectoryPath;
+    }
+
+    @NotNull
+    public List<Entry> getChildren() {
+        return myChildren;
+    }
+
+    public long getTotalSize() {
+        return myTotalSize;
+    }
+
+    public long getFileCount() {
+        return myFileCount;
+    }
+
+    public long getDirectoryCount() {
+        return myDirectoryCount;
+    }
+
+    /**
+     * @return number of files per file type name, most frequent first
+     */
+    @NotNull
+    public Map<String, Long> getFileTypeHistogram() {
+        return myFileTypeHistogram;
+    }
+
+    /**
+     * @return largest files (path relative to the directory), largest first
+     */
+    @NotNull
+    public List<Entry> getLargestFiles() {
+        return myLargestFiles;
+    }
+
+    public boolean isComplete() {
+        return myComplete;
+    }
+
+    @NotNull
+    public String getReport() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%s%n%n", myDirectoryPath));
+        builder.append(String.format("%d files, %d directories, %s total%s%n",
+                myFileCount, myDirectoryCount, StringUtil.formatFileSize(myTotalSize), myComplete ? "" : " (in progress...)"));
+
+        builder.append(String.format("%ncontent:%n"));
+        for (Entry child : myChildren) {
+            builder.append(String.format("  %-60s %12s%n", child.getPath() + (child.isDirectory() ? "/" : ""),
+                    child.isDirectory() ? "" : StringUtil.formatFileSize(child.getSize())));
+        }
+
+        builder.append(String.format("%nfile types:%n"));
+        for (Map.Entry<String, Long> fileType : myFileTypeHistogram.entrySet()) {
+            builder.append(String.format("  %-30s %8d%n", fileType.getKey(), fileType.getValue()));
+        }
+
+        builder.append(String.format("%nlargest files:%n"));
+        for (Entry file : myLargestFiles) {
+            builder.append(String.format("  %-60s %12s%n", file.getPath(), StringUtil.formatFileSize(file.getSize())));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,171 @@
+package net.seesharpsoft.intellij.plugins.filepreview.directory;
+
+import com.intellij.openapi.fileTypes.FileTypeManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Walks a local directory in parallel (one task per directory) - {@link #snapshot(boolean)} can be taken at any time of the walk.
+ * The file system is accessed directly to not load the whole tree into the VFS. Symbolic links and ignored files are skipped.
+ */
+public class PreviewDirectoryWalker {
+
+    public static final int LARGEST_FILES_COUNT = 10;
+    public static final int MAX_CHILDREN_COUNT = 200;
+
+    // shared, at most half of the cores - the walk must not starve the IDE
+    private static final ExecutorService EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor("Quick File Preview Directory Walker",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    private static final Comparator<PreviewDirectoryStatistics.Entry> BY_SIZE = Comparator.comparingLong(PreviewDirectoryStatistics.Entry::getSize);
+
+    private final Path myRoot;
+    private final ProgressIndicator myIndicator;
+    // directories submitted but not walked yet - the walk is done when it drops to zero
+    private final AtomicInteger myPendingDirectoryCount = new AtomicInteger();
+    private final CompletableFuture<Void> myCompletion = new CompletableFuture<>();
+
+    private final List<PreviewDirectoryStatistics.Entry> myChildren = new ArrayList<>();
+    private final LongAdder myTotalSize = new LongAdder();
+    private final LongAdder myFileCount = new LongAdder();
+    private final LongAdder myDirectoryCount = new LongAdder();
+    private final Map<String, LongAdder> myFileTypeHistogram = new ConcurrentHashMap<>();
+    // min-heap of the largest files found so far
+    private final PriorityQueue<PreviewDirectoryStatistics.Entry> myLargestFiles = new PriorityQueue<>(LARGEST_FILES_COUNT + 1, BY_SIZE);
+
+    public PreviewDirectoryWalker(@NotNull Path root, @NotNull ProgressIndicator indicator) {
+        myRoot = root;
+        myIndicator = indicator;
+    }
+
+    @NotNull
+    public Future<?> start() {
+        submit(myRoot, true);
+        return myCompletion;
+    }
+
+    @NotNull
+    public PreviewDirectoryStatistics snapshot(boolean complete) {
+        List<PreviewDirectoryStatistics.Entry> children;
+        synchronized (myChildren) {
+            children = new ArrayList<>(myChildren);
+        }
+        children.sort(Comparator.comparing((PreviewDirectoryStatistics.Entry entry) -> !entry.isDirectory())
+                .thenComparing(PreviewDirectoryStatistics.Entry::getPath, String.CASE_INSENSITIVE_ORDER));
+
+        Map<String, Long> fileTypeHistogram = new LinkedHashMap<>();
+        myFileTypeHistogram.entrySet().stream()
+                .sorted((first, second) -> Long.compare(second.getValue().sum(), first.getValue().sum()))
+                .forEach(entry -> fileTypeHistogram.put(entry.getKey(), entry.getValue().sum()));
+
+        List<PreviewDirectoryStatistics.Entry> largestFiles;
+        synchronized (myLargestFiles) {
+            largestFiles = new ArrayList<>(myLargestFiles);
+        }
+        largestFiles.sort(BY_SIZE.reversed());
+
+        return new PreviewDirectoryStatistics(myRoot.toString(), children, myTotalSize.sum(), myFileCount.sum(), myDirectoryCount.sum(),
+                fileTypeHistogram, largestFiles, complete);
+    }
+
+    private void fileFound(@NotNull Path file, long size) {
+        myFileCount.increment();
+        myTotalSize.add(size);
+        String fileTypeName = FileTypeManager.getInstance().getFileTypeByFileName(file.getFileName().toString()).getName();
+        myFileTypeHistogram.computeIfAbsent(fileTypeName, name -> new LongAdder()).increment();
+        synchronized (myLargestFiles) {
+            if (myLargestFiles.size() < LARGEST_FILES_COUNT || myLargestFiles.peek().getSize() < size) {
+                myLargestFiles.add(new PreviewDirectoryStatistics.Entry(myRoot.relativize(file).toString(), false, size));
+                if (myLargestFiles.size() > LARGEST_FILES_COUNT) {
+                    myLargestFiles.poll();
+                }
+            }
+        }
+    }
+
+    private void childFound(@NotNull Path child, boolean directory, long size) {
+        synchronized (myChildren) {
+            if (myChildren.size() < MAX_CHILDREN_COUNT) {
+                myChildren.add(new PreviewDirectoryStatistics.Entry(child.getFileName().toString(), directory, size));
+            }
+        }
+    }
+
+    private void submit(@NotNull Path directory, boolean isRoot) {
+        myPendingDirectoryCount.incrementAndGet();
+        try {
+            EXECUTOR.execute(() -> {
+                try {
+                    walk(directory, isRoot);
+                } finally {
+                    directoryDone();
+                }
+            });
+        } catch (RejectedExecutionException exc) {
+            // application is shutting down
+            directoryDone();
+        }
+    }
+
+    private void directoryDone() {
+        if (myPendingDirectoryCount.decrementAndGet() == 0) {
+            myCompletion.complete(null);
+        }
+    }
+
+    /**
+     * Sub directories are submitted before this directory is done - the pending count can not drop to zero before the whole tree is walked.
+     */
+    private void walk(@NotNull Path directory, boolean isRoot) {
+        if (myIndicator.isCanceled()) {
+            return;
+        }
+        FileTypeManager fileTypeManager = FileTypeManager.getInstance();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path child : stream) {
+                if (myIndicator.isCanceled()) {
+                    return;
+                }
+                if (fileTypeManager.isFileIgnored(child.getFileName().toString())) {
+                    continue;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (attributes.isSymbolicLink()) {
+                    continue;
+                }
+                if (isRoot) {
+                    childFound(child, attributes.isDirectory(), attributes.size());
+                }
+                if (attributes.isDirectory()) {
+                    myDirectoryCount.increment();
+                    submit(child, false);
+                } else {
+                    fileFound(child, attributes.size());
+                }
+            }
+        } catch (IOException exc) {
+            // not accessible - skip
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package net.seesharpsoft.intellij.plugins.filepreview.editor;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.ex.EditorEx;
+import com.intellij.openapi.editor.highlighter.EditorHighlighterFactory;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewViewportCache;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * A single long-lived read-only viewer component - the inner viewer editor is created on the document of the shown file itself,
+ * so the content is neither copied nor held twice. Showing another file only swaps the inner editor.
+ */
+public class PreviewDocumentViewer implements Disposable {
+
+    private final Project myProject;
+    private final JPanel myComponent = new JPanel(new BorderLayout());
+
+    private EditorEx myEditor;
+    private VirtualFile myFile;
+
+    public PreviewDocumentViewer(@NotNull Project project) {
+        myProject = project;
+    }
+
+    public boolean show(@NotNull VirtualFile file) {
+        if (myEditor != null && file.equals(myFile)) {
+            // changes of the document are shown by the viewer anyway
+            return true;
+        }
+        final Document document = FileDocumentManager.getInstance().getDocument(file);
+        if (document == null) {
+            return false;
+        }
+
+        releaseEditor();
+        myEditor = (EditorEx) EditorFactory.getInstance().createViewer(document, myProject);
+        myEditor.getSettings().setLineNumbersShown(true);
+        myEditor.getSettings().setFoldingOutlineShown(false);
+        myEditor.setHighlighter(EditorHighlighterFactory.getInstance().createEditorHighlighter(myProject, file));
+        myComponent.add(myEditor.getComponent(), BorderLayout.CENTER);
+        myComponent.revalidate();
+        myComponent.repaint();
+
+        myFile = file;
+        PreviewViewportCache.getInstance(myProject).restore(file, myEditor);
+        return true;
+    }
+
+    private void releaseEditor() {
+        if (myEditor == null) {
+            return;
+        }
+        if (myFile != null && !myProject.isDisposed()) {
+            PreviewViewportCache.getInstance(myProject).save(myFile, myEditor);
+        }
+        myComponent.remove(myEditor.getComponent());
+        if (!myEditor.isDisposed()) {
+            EditorFactory.getInstance().releaseEditor(myEditor);
+        }
+        myEditor = null;
+    }
+
+    public VirtualFile getFile() {
+        return myFile;
+    }
+
+    @Nullable
+    public EditorEx getEditor() {
+        return myEditor;
+    }
+
+    @NotNull
+    public JComponent getComponent() {
+        return myComponent;
+    }
+
+    @NotNull
+    public JComponent getPreferredFocusedComponent() {
+        return myEditor == null ? myComponent : myEditor.getContentComponent();
+    }
+
+    @Override
+    public void dispose() {
+        releaseEditor();
+        myFile = null;
+    }
+}
@@ -0,0 +1,89 @@
+package net.seesharpsoft.intellij.plugins.filepreview.editor;
+
+import com.intellij.codeHighlighting.BackgroundEditorHighlighter;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.FileEditorLocation;
+import com.intellij.openapi.fileEditor.FileEditorState;
+import com.intellij.openapi.util.UserDataHolderBase;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.beans.PropertyChangeListener;
+
+/**
+ * Base of the read-only preview editors - they have no state, no modifications and no highlighting.
+ */
+public abstract class PreviewFileEditorBase extends UserDataHolderBase implements FileEditor {
+
+    protected final VirtualFile myFile;
+
+    protected PreviewFileEditorBase(@NotNull VirtualFile file) {
+        myFile = file;
+    }
+
+    @Nullable
+    @Override
+    public JComponent getPreferredFocusedComponent() {
+        return getComponent();
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "Preview";
+    }
+
+    @Override
+    public void setState(@NotNull FileEditorState state) {
+        // stateless
+    }
+
+    @Override
+    public boolean isModified() {
+        return false;
+    }
+
+    @Override
+    public boolean isValid() {
+        return myFile.isValid();
+    }
+
+    @Override
+    public void selectNotify() {
+        // nothing to do
+    }
+
+    @Override
+    public void deselectNotify() {
+        // nothing to do
+    }
+
+    @Override
+    public void addPropertyChangeListener(@NotNull PropertyChangeListener listener) {
+        // no properties
+    }
+
+    @Override
+    public void removePropertyChangeListener(@NotNull PropertyChangeListener listener) {
+        // no properties
+    }
+
+    @Nullable
+    @Override
+    public BackgroundEditorHighlighter getBackgroundHighlighter() {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public FileEditorLocation getCurrentLocation() {
+        return null;
+    }
+
+    @Override
+    public void dispose() {
+        // nothing to dispose
+    }
+}
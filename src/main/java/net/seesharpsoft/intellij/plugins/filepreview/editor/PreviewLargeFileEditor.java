@@ -0,0 +1,60 @@
+package net.seesharpsoft.intellij.plugins.filepreview.editor;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.components.JBLabel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public class PreviewLargeFileEditor extends PreviewFileEditorBase {
+
+    private final PreviewMappedFile myMappedFile;
+    private final JComponent myComponent;
+    private final JComponent myPreferredFocusedComponent;
+
+    public PreviewLargeFileEditor(@NotNull VirtualFile file) {
+        super(file);
+
+        PreviewMappedFile mappedFile;
+        try {
+            mappedFile = new PreviewMappedFile(Paths.get(file.getPath()), file.getCharset());
+        } catch (IOException exc) {
+            mappedFile = null;
+        }
+        myMappedFile = mappedFile;
+        if (myMappedFile == null) {
+            myComponent = new JBLabel(String.format("'%s' can not be read", file.getPresentableName()), SwingConstants.CENTER);
+            myPreferredFocusedComponent = myComponent;
+        } else {
+            PreviewMappedFileViewer viewer = new PreviewMappedFileViewer(myMappedFile);
+            myComponent = viewer;
+            myPreferredFocusedComponent = viewer.getPreferredFocusedComponent();
+        }
+    }
+
+    @NotNull
+    @Override
+    public JComponent getComponent() {
+        return myComponent;
+    }
+
+    @Nullable
+    @Override
+    public JComponent getPreferredFocusedComponent() {
+        return myPreferredFocusedComponent;
+    }
+
+    @Override
+    public void dispose() {
+        if (myMappedFile != null) {
+            try {
+                myMappedFile.close();
+            } catch (IOException exc) {
+                // nothing left to do
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package net.seesharpsoft.intellij.plugins.filepreview.editor;
+
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.FileEditorPolicy;
+import com.intellij.openapi.fileEditor.FileEditorProvider;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewSettings;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewUtil;
+import org.jetbrains.annotations.NotNull;
+
+public class PreviewLargeFileEditorProvider implements FileEditorProvider, DumbAware {
+
+    public static final String EDITOR_TYPE_ID = "quick-file-preview-large-file";
+
+    @Override
+    public boolean accept(@NotNull Project project, @NotNull VirtualFile file) {
+        return PreviewSettings.getInstance().getSnapshot().isPreviewOversizedFilesReadOnly() &&
+                PreviewUtil.isPreviewed(project, file) &&
+                file.isInLocalFileSystem() &&
+                !file.isDirectory() &&
+                PreviewUtil.isFileOversized(file) &&
+                PreviewMappedFile.isSupported(file.getCharset());
+    }
+
+    @NotNull
+    @Override
+    public FileEditor createEditor(@NotNull Project project, @NotNull VirtualFile file) {
+        return new PreviewLargeFileEditor(file);
+    }
+
+    @NotNull
+    @Override
+    public String getEditorTypeId() {
+        return EDITOR_TYPE_ID;
+    }
+
+    @NotNull
+    @Override
+    public FileEditorPolicy getPolicy() {
+        return FileEditorPolicy.HIDE_DEFAULT_EDITOR;
+    }
+}
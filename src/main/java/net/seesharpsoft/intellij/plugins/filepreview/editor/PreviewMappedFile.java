@@ -0,0 +1,130 @@
+package net.seesharpsoft.intellij.plugins.filepreview.editor;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read-only line access to a file of arbitrary size - only a window of the file is mapped at a time, nothing is loaded on the heap.
+ * Lines are split on the byte '\n', so only charsets encoding it as that single byte are supported (see {@link #isSupported(Charset)}).
+ */
+public class PreviewMappedFile implements Closeable {
+
+    public static final int MAX_LINE_LENGTH = 4096;
+
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private static final String ASCII_SAMPLE = "\r\n\t azAZ09";
+
+    private final FileChannel myChannel;
+    private final long myLength;
+    private final Charset myCharset;
+
+    private MappedByteBuffer myWindow;
+    private long myWindowStart;
+    private long myWindowEnd;
+
+    /**
+     * @return true if the charset is ASCII compatible - e.g. UTF-8 or ISO-8859-1, but not UTF-16
+     */
+    public static boolean isSupported(@NotNull Charset charset) {
+        return charset.canEncode() && Arrays.equals(ASCII_SAMPLE.getBytes(charset), ASCII_SAMPLE.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public PreviewMappedFile(@NotNull Path path, @NotNull Charset charset) throws IOException {
+        if (!isSupported(charset)) {
+            throw new IOException(String.format("charset %s is not supported", charset.name()));
+        }
+        myChannel = FileChannel.open(path, StandardOpenOption.READ);
+        myLength = myChannel.size();
+        myCharset = charset;
+    }
+
+    public long getLength() {
+        return myLength;
+    }
+
+    /**
+     * @return a view of the window containing the position - every reader gets its own view to read without further locking
+     */
+    private synchronized ByteBuffer getWindow(long position) throws IOException {
+        if (myWindow == null || position < myWindowStart || position >= myWindowEnd) {
+            // center the window around the requested position to support scanning in both directions
+            myWindowStart = Math.max(0, position - WINDOW_SIZE / 2);
+            myWindowEnd = Math.min(myLength, myWindowStart + WINDOW_SIZE);
+            myWindow = myChannel.map(FileChannel.MapMode.READ_ONLY, myWindowStart, myWindowEnd - myWindowStart);
+        }
+        ByteBuffer window = myWindow.duplicate();
+        window.position((int) (position - myWindowStart));
+        return window;
+    }
+
+    private byte[] read(long position, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            ByteBuffer window = getWindow(position + offset);
+            int count = Math.min(length - offset, window.remaining());
+            window.get(bytes, offset, count);
+            offset += count;
+        }
+        return bytes;
+    }
+
+    public long getLineStart(long position) throws IOException {
+        long start = Math.max(0, Math.min(position, myLength));
+        int length = (int) Math.min(MAX_LINE_LENGTH, start);
+        byte[] bytes = read(start - length, length);
+        int index = length;
+        while (index > 0 && bytes[index - 1] != '\n') {
+            --index;
+        }
+        return start - length + index;
+    }
+
+    private static int getLineLength(byte[] bytes) {
+        int index = 0;
+        while (index < bytes.length) {
+            if (bytes[index++] == '\n') {
+                break;
+            }
+        }
+        return index;
+    }
+
+    private int getRemainingLineLength(long lineStart) {
+        return (int) Math.max(0, Math.min(MAX_LINE_LENGTH, myLength - lineStart));
+    }
+
+    public long getNextLineStart(long lineStart) throws IOException {
+        return lineStart + getLineLength(read(lineStart, getRemainingLineLength(lineStart)));
+    }
+
+    public long getPreviousLineStart(long lineStart) throws IOException {
+        return lineStart <= 0 ? 0 : getLineStart(lineStart - 1);
+    }
+
+    public String getLine(long lineStart) throws IOException {
+        byte[] bytes = read(lineStart, getRemainingLineLength(lineStart));
+        int length = getLineLength(bytes);
+        while (length > 0 && (bytes[length - 1] == '\n' || bytes[length - 1] == '\r')) {
+            --length;
+        }
+        return new String(bytes, 0, length, myCharset);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        myWindow = null;
+        myChannel.close();
+    }
+}
@@ -0,0 +1,156 @@
+package net.seesharpsoft.intellij.plugins.filepreview.editor;
+
+import com.intellij.openapi.editor.colors.EditorColorsManager;
+import com.intellij.openapi.editor.colors.EditorColorsScheme;
+import com.intellij.openapi.editor.colors.EditorFontType;
+import com.intellij.ui.components.JBScrollBar;
+import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseWheelEvent;
+import java.io.IOException;
+
+/**
+ * Paints only the lines of a {@link PreviewMappedFile} that fit into the visible area. The scroll bar maps to byte offsets,
+ * therefore no line index of the whole file is required.
+ */
+public class PreviewMappedFileViewer extends JPanel {
+
+    private static final int SCROLL_RESOLUTION = 1 << 20;
+    private static final int MAX_PAINTED_LINE_LENGTH = 1000;
+
+    private final PreviewMappedFile myMappedFile;
+    private final JScrollBar myScrollBar;
+    private final LinesComponent myLinesComponent;
+
+    private long myTopLineStart;
+    private boolean myIsUpdatingScrollBar;
+
+    public PreviewMappedFileViewer(@NotNull PreviewMappedFile mappedFile) {
+        super(new BorderLayout());
+        myMappedFile = mappedFile;
+
+        myLinesComponent = new LinesComponent();
+        myScrollBar = new JBScrollBar(Adjustable.VERTICAL, 0, 0, 0, SCROLL_RESOLUTION);
+        myScrollBar.addAdjustmentListener(event -> {
+            if (!myIsUpdatingScrollBar) {
+                scrollToOffset(myMappedFile.getLength() * event.getValue() / SCROLL_RESOLUTION);
+            }
+        });
+
+        add(myLinesComponent, BorderLayout.CENTER);
+        add(myScrollBar, BorderLayout.EAST);
+
+        myLinesComponent.addMouseWheelListener(this::mouseWheelMoved);
+        registerScrollAction(KeyEvent.VK_UP, "previewLineUp", () -> scrollLines(-1));
+        registerScrollAction(KeyEvent.VK_DOWN, "previewLineDown", () -> scrollLines(1));
+        registerScrollAction(KeyEvent.VK_PAGE_UP, "previewPageUp", () -> scrollLines(-getVisibleLineCount()));
+        registerScrollAction(KeyEvent.VK_PAGE_DOWN, "previewPageDown", () -> scrollLines(getVisibleLineCount()));
+        registerScrollAction(KeyEvent.VK_HOME, "previewHome", () -> scrollToOffset(0));
+        registerScrollAction(KeyEvent.VK_END, "previewEnd", () -> scrollToOffset(myMappedFile.getLength()));
+    }
+
+    public JComponent getPreferredFocusedComponent() {
+        return myLinesComponent;
+    }
+
+    private void registerScrollAction(int keyCode, String actionKey, Runnable action) {
+        myLinesComponent.getInputMap(WHEN_FOCUSED).put(KeyStroke.getKeyStroke(keyCode, 0), actionKey);
+        myLinesComponent.getActionMap().put(actionKey, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    private void mouseWheelMoved(MouseWheelEvent event) {
+        scrollLines(event.getWheelRotation() * Math.max(1, event.getScrollAmount()));
+    }
+
+    private int getVisibleLineCount() {
+        return Math.max(1, myLinesComponent.getHeight() / myLinesComponent.getLineHeight());
+    }
+
+    protected void scrollLines(int lines) {
+        try {
+            long lineStart = myTopLineStart;
+            for (int i = 0; i < Math.abs(lines); ++i) {
+                long next = lines < 0 ? myMappedFile.getPreviousLineStart(lineStart) : myMappedFile.getNextLineStart(lineStart);
+                if (next == lineStart || next >= myMappedFile.getLength()) {
+                    break;
+                }
+                lineStart = next;
+            }
+            setTopLineStart(lineStart);
+        } catch (IOException exc) {
+            // file vanished or is not readable anymore - keep current state
+        }
+    }
+
+    protected void scrollToOffset(long offset) {
+        try {
+            setTopLineStart(myMappedFile.getLineStart(Math.min(offset, Math.max(0, myMappedFile.getLength() - 1))));
+        } catch (IOException exc) {
+            // file vanished or is not readable anymore - keep current state
+        }
+    }
+
+    private void setTopLineStart(long lineStart) {
+        myTopLineStart = lineStart;
+        myIsUpdatingScrollBar = true;
+        try {
+            long length = Math.max(1, myMappedFile.getLength());
+            myScrollBar.setValue((int) (lineStart * SCROLL_RESOLUTION / length));
+        } finally {
+            myIsUpdatingScrollBar = false;
+        }
+        myLinesComponent.repaint();
+    }
+
+    private final class LinesComponent extends JComponent {
+
+        LinesComponent() {
+            setFocusable(true);
+            setBorder(JBUI.Borders.emptyLeft(4));
+        }
+
+        private EditorColorsScheme getScheme() {
+            return EditorColorsManager.getInstance().getGlobalScheme();
+        }
+
+        int getLineHeight() {
+            return Math.max(1, getFontMetrics(getScheme().getFont(EditorFontType.PLAIN)).getHeight());
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            EditorColorsScheme scheme = getScheme();
+            g.setColor(scheme.getDefaultBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+
+            Font font = scheme.getFont(EditorFontType.PLAIN);
+            FontMetrics fontMetrics = g.getFontMetrics(font);
+            g.setFont(font);
+            g.setColor(scheme.getDefaultForeground());
+
+            int x = getInsets().left;
+            int y = fontMetrics.getAscent();
+            try {
+                long lineStart = myTopLineStart;
+                while (y - fontMetrics.getAscent() < getHeight() && lineStart < myMappedFile.getLength()) {
+                    String line = myMappedFile.getLine(lineStart).replace("\t", "    ");
+                    g.drawString(line.length() > MAX_PAINTED_LINE_LENGTH ? line.substring(0, MAX_PAINTED_LINE_LENGTH) : line, x, y);
+                    lineStart = myMappedFile.getNextLineStart(lineStart);
+                    y += fontMetrics.getHeight();
+                }
+            } catch (IOException exc) {
+                // file vanished or is not readable anymore - paint what we have
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package net.seesharpsoft.intellij.plugins.filepreview.editor;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+
+public class PreviewSlotEditor extends PreviewFileEditorBase {
+
+    private final PreviewViewerRing myViewerRing;
+
+    public PreviewSlotEditor(@NotNull PreviewSlotFile file, @NotNull PreviewViewerRing viewerRing) {
+        super(file);
+        myViewerRing = viewerRing;
+    }
+
+    @NotNull
+    @Override
+    public JComponent getComponent() {
+        return myViewerRing.getComponent();
+    }
+
+    @Nullable
+    @Override
+    public JComponent getPreferredFocusedComponent() {
+        return myViewerRing.getPreferredFocusedComponent();
+    }
+}
@@ -0,0 +1,38 @@
+package net.seesharpsoft.intellij.plugins.filepreview.editor;
+
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.FileEditorPolicy;
+import com.intellij.openapi.fileEditor.FileEditorProvider;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewSlot;
+import org.jetbrains.annotations.NotNull;
+
+public class PreviewSlotEditorProvider implements FileEditorProvider, DumbAware {
+
+    public static final String EDITOR_TYPE_ID = "quick-file-preview-slot";
+
+    @Override
+    public boolean accept(@NotNull Project project, @NotNull VirtualFile file) {
+        return file instanceof PreviewSlotFile;
+    }
+
+    @NotNull
+    @Override
+    public FileEditor createEditor(@NotNull Project project, @NotNull VirtualFile file) {
+        return new PreviewSlotEditor((PreviewSlotFile) file, PreviewSlot.getInstance(project).getViewerRing());
+    }
+
+    @NotNull
+    @Override
+    public String getEditorTypeId() {
+        return EDITOR_TYPE_ID;
+    }
+
+    @NotNull
+    @Override
+    public FileEditorPolicy getPolicy() {
+        return FileEditorPolicy.HIDE_DEFAULT_EDITOR;
+    }
+}
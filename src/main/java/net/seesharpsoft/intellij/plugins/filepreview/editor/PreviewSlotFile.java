@@ -0,0 +1,33 @@
+package net.seesharpsoft.intellij.plugins.filepreview.editor;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.LightVirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Placeholder file of the reused preview tab - the actually previewed file can change while the tab stays open.
+ */
+public class PreviewSlotFile extends LightVirtualFile {
+
+    private VirtualFile myDisplayedFile;
+
+    public PreviewSlotFile() {
+        super("Preview");
+        setWritable(false);
+    }
+
+    public VirtualFile getDisplayedFile() {
+        return myDisplayedFile;
+    }
+
+    public void setDisplayedFile(@NotNull VirtualFile displayedFile) {
+        myDisplayedFile = displayedFile;
+        setFileType(displayedFile.getFileType());
+    }
+
+    @NotNull
+    @Override
+    public String getPresentableName() {
+        return myDisplayedFile == null ? super.getPresentableName() : myDisplayedFile.getPresentableName();
+    }
+}
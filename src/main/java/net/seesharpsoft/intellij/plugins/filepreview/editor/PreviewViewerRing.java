@@ -0,0 +1,144 @@
+package net.seesharpsoft.intellij.plugins.filepreview.editor;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.LowMemoryWatcher;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the viewers of the most recently previewed files alive but hidden - returning to one of them only flips the visible card.
+ * The least recently used viewer is reused for new files once the capacity is reached, hidden viewers are released on low memory.
+ */
+public class PreviewViewerRing implements Disposable {
+
+    private final Project myProject;
+    private final JPanel myComponent;
+    private final CardLayout myCardLayout = new CardLayout();
+
+    // access ordered - eldest entry is the least recently shown viewer
+    private final LinkedHashMap<VirtualFile, PreviewDocumentViewer> myViewers = new LinkedHashMap<>(8, 0.75f, true);
+    private final Map<PreviewDocumentViewer, String> myCardNames = new IdentityHashMap<>();
+    private int myCardCount;
+
+    private int myCapacity;
+    private PreviewDocumentViewer myCurrentViewer;
+
+    private final AtomicLong myRingHitCount = new AtomicLong();
+
+    public PreviewViewerRing(@NotNull Project project, int capacity) {
+        myProject = project;
+        myCapacity = Math.max(1, capacity);
+        myComponent = new JPanel(myCardLayout);
+        // low memory is signaled off the EDT - releasing editors and removing components must happen on the EDT
+        LowMemoryWatcher.register(() -> ApplicationManager.getApplication().invokeLater(this::releaseHiddenViewers, myProject.getDisposed()), this);
+    }
+
+    public boolean show(@NotNull VirtualFile file) {
+        PreviewDocumentViewer viewer = myViewers.get(file);
+        if (viewer != null) {
+            myRingHitCount.incrementAndGet();
+        } else {
+            // the document is only loaded for files not in the ring
+            if (FileDocumentManager.getInstance().getDocument(file) == null) {
+                return false;
+            }
+            viewer = myViewers.size() < myCapacity ? createViewer() : removeEldestViewer();
+            myViewers.put(file, viewer);
+        }
+        // no-op if the document did not change since the viewer showed it last
+        viewer.show(file);
+        myCardLayout.show(myComponent, myCardNames.get(viewer));
+        myCurrentViewer = viewer;
+        return true;
+    }
+
+    private PreviewDocumentViewer createViewer() {
+        PreviewDocumentViewer viewer = new PreviewDocumentViewer(myProject);
+        Disposer.register(this, viewer);
+        String cardName = "viewer" + myCardCount++;
+        myCardNames.put(viewer, cardName);
+        myComponent.add(viewer.getComponent(), cardName);
+        return viewer;
+    }
+
+    private PreviewDocumentViewer removeEldestViewer() {
+        Iterator<PreviewDocumentViewer> iterator = myViewers.values().iterator();
+        PreviewDocumentViewer viewer = iterator.next();
+        iterator.remove();
+        return viewer;
+    }
+
+    private void releaseViewer(@NotNull PreviewDocumentViewer viewer) {
+        myComponent.remove(viewer.getComponent());
+        myCardNames.remove(viewer);
+        Disposer.dispose(viewer);
+    }
+
+    /**
+     * Releases least recently used viewers exceeding the given capacity - the current viewer is always kept.
+     */
+    public void setCapacity(int capacity) {
+        myCapacity = Math.max(1, capacity);
+        trim(myCapacity);
+    }
+
+    public void releaseHiddenViewers() {
+        trim(1);
+    }
+
+    private void trim(int capacity) {
+        Iterator<PreviewDocumentViewer> iterator = myViewers.values().iterator();
+        int excess = myViewers.size() - capacity;
+        while (excess > 0 && iterator.hasNext()) {
+            PreviewDocumentViewer viewer = iterator.next();
+            if (viewer != myCurrentViewer) {
+                iterator.remove();
+                releaseViewer(viewer);
+                --excess;
+            }
+        }
+    }
+
+    @Nullable
+    public VirtualFile getFile() {
+        return myCurrentViewer == null ? null : myCurrentViewer.getFile();
+    }
+
+    @NotNull
+    public JComponent getComponent() {
+        return myComponent;
+    }
+
+    @NotNull
+    public JComponent getPreferredFocusedComponent() {
+        return myCurrentViewer == null ? myComponent : myCurrentViewer.getPreferredFocusedComponent();
+    }
+
+    public int size() {
+        return myViewers.size();
+    }
+
+    public long getRingHitCount() {
+        return myRingHitCount.get();
+    }
+
+    @Override
+    public void dispose() {
+        myViewers.clear();
+        myCardNames.clear();
+        myCurrentViewer = null;
+    }
+}
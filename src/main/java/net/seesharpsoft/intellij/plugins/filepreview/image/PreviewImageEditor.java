@@ -0,0 +1,66 @@
+package net.seesharpsoft.intellij.plugins.filepreview.image;
+
+import com.intellij.util.ui.UIUtil;
+import net.seesharpsoft.intellij.plugins.filepreview.editor.PreviewFileEditorBase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class PreviewImageEditor extends PreviewFileEditorBase {
+
+    private final ThumbnailPanel myPanel = new ThumbnailPanel();
+
+    public PreviewImageEditor(@NotNull PreviewImageFile file) {
+        super(file);
+        setThumbnail(file.getThumbnail(), file.isLoading());
+    }
+
+    public void setThumbnail(@Nullable BufferedImage thumbnail, boolean loading) {
+        myPanel.myThumbnail = thumbnail;
+        myPanel.myLoading = loading;
+        myPanel.repaint();
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "Image Preview";
+    }
+
+    @NotNull
+    @Override
+    public JComponent getComponent() {
+        return myPanel;
+    }
+
+    /**
+     * Paints the thumbnail centered and scaled down to the available space - never scaled up.
+     */
+    private static final class ThumbnailPanel extends JPanel {
+
+        private BufferedImage myThumbnail;
+        private boolean myLoading;
+
+        @Override
+        protected void paintComponent(Graphics graphics) {
+            super.paintComponent(graphics);
+            BufferedImage thumbnail = myThumbnail;
+            if (thumbnail == null) {
+                String text = myLoading ? "Loading..." : "No preview available";
+                graphics.setColor(UIUtil.getInactiveTextColor());
+                FontMetrics metrics = graphics.getFontMetrics();
+                graphics.drawString(text, (getWidth() - metrics.stringWidth(text)) / 2, getHeight() / 2);
+                return;
+            }
+            double scale = Math.min(1.0, Math.min((double) getWidth() / thumbnail.getWidth(), (double) getHeight() / thumbnail.getHeight()));
+            int width = (int) (thumbnail.getWidth() * scale);
+            int height = (int) (thumbnail.getHeight() * scale);
+            Graphics2D graphics2D = (Graphics2D) graphics;
+            graphics2D.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics2D.drawImage(thumbnail, (getWidth() - width) / 2, (getHeight() - height) / 2, width, height, null);
+        }
+    }
+}
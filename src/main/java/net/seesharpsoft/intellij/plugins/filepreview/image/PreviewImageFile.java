@@ -0,0 +1,46 @@
+package net.seesharpsoft.intellij.plugins.filepreview.image;
+
+import com.intellij.testFramework.LightVirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Placeholder file of the image preview tab - the shown thumbnail changes while the tab stays open.
+ */
+public class PreviewImageFile extends LightVirtualFile {
+
+    private String myTitle;
+    private BufferedImage myThumbnail;
+    private boolean myLoading;
+
+    public PreviewImageFile() {
+        super("Image");
+        setWritable(false);
+    }
+
+    @Nullable
+    public BufferedImage getThumbnail() {
+        return myThumbnail;
+    }
+
+    public boolean isLoading() {
+        return myLoading;
+    }
+
+    /**
+     * @param thumbnail null while loading or if the image could not be decoded
+     */
+    public void setThumbnail(@NotNull String title, @Nullable BufferedImage thumbnail, boolean loading) {
+        myTitle = title;
+        myThumbnail = thumbnail;
+        myLoading = loading;
+    }
+
+    @NotNull
+    @Override
+    public String getPresentableName() {
+        return myTitle == null ? super.getPresentableName() : myTitle;
+    }
+}
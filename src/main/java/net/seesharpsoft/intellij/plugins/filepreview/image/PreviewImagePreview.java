@@ -0,0 +1,119 @@
+package net.seesharpsoft.intellij.plugins.filepreview.image;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.ex.FileEditorManagerEx;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Thumbnail preview of a selected image file - the full image editor is only created when the file is opened as editor.
+ * Requests still queued when the selection moves on are skipped, so scrolling through an asset folder decodes the last selection only.
+ */
+public final class PreviewImagePreview implements Disposable {
+
+    private static final Set<String> IMAGE_EXTENSIONS = Arrays.stream(ImageIO.getReaderFileSuffixes())
+            .map(suffix -> suffix.toLowerCase(Locale.ROOT))
+            .collect(Collectors.toSet());
+
+    private final Project myProject;
+    private final PreviewImageFile myImageFile = new PreviewImageFile();
+    // incremented for every request - a loaded thumbnail is only shown if its request is still the current one
+    private final AtomicInteger myRequestCount = new AtomicInteger();
+
+    public static PreviewImagePreview getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, PreviewImagePreview.class);
+    }
+
+    public PreviewImagePreview(@NotNull Project project) {
+        myProject = project;
+    }
+
+    public static boolean isImage(@NotNull VirtualFile file) {
+        String extension = file.getExtension();
+        return !file.isDirectory() && file.isInLocalFileSystem() && extension != null && IMAGE_EXTENSIONS.contains(extension.toLowerCase(Locale.ROOT));
+    }
+
+    @NotNull
+    public PreviewImageFile getImageFile() {
+        return myImageFile;
+    }
+
+    /**
+     * @return false if the file can not be previewed as image (e.g. unsupported format)
+     */
+    public boolean show(@NotNull VirtualFile file) {
+        if (!isImage(file)) {
+            return false;
+        }
+        final int request = myRequestCount.incrementAndGet();
+        final String title = getTitle(file);
+        final PreviewThumbnailCache thumbnailCache = PreviewThumbnailCache.getInstance();
+        BufferedImage thumbnail = thumbnailCache.getCached(PreviewThumbnailCache.getKey(file));
+        open(title, thumbnail, thumbnail == null);
+        if (thumbnail == null) {
+            thumbnailCache.load(file, () -> myRequestCount.get() != request, loadedThumbnail -> publish(request, title, loadedThumbnail));
+        }
+        return true;
+    }
+
+    @NotNull
+    private static String getTitle(@NotNull VirtualFile file) {
+        return file.getName() + " (" + StringUtil.formatFileSize(file.getLength()) + ")";
+    }
+
+    private void open(@NotNull String title, @Nullable BufferedImage thumbnail, boolean loading) {
+        myImageFile.setThumbnail(title, thumbnail, loading);
+        FileEditorManagerEx fileEditorManager = FileEditorManagerEx.getInstanceEx(myProject);
+        if (fileEditorManager.isFileOpen(myImageFile)) {
+            update(thumbnail, loading);
+            fileEditorManager.updateFilePresentation(myImageFile);
+        } else {
+            PreviewUtil.preparePreview(myProject, myImageFile);
+        }
+        // keep focus in the tree for keyboard navigation
+        fileEditorManager.openFile(myImageFile, false);
+    }
+
+    private void update(@Nullable BufferedImage thumbnail, boolean loading) {
+        for (FileEditor fileEditor : FileEditorManagerEx.getInstanceEx(myProject).getEditors(myImageFile)) {
+            if (fileEditor instanceof PreviewImageEditor) {
+                ((PreviewImageEditor) fileEditor).setThumbnail(thumbnail, loading);
+            }
+        }
+    }
+
+    private void publish(int request, @NotNull String title, @Nullable BufferedImage thumbnail) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (myRequestCount.get() != request || !PreviewUtil.isValid(myProject)) {
+                return;
+            }
+            myImageFile.setThumbnail(title, thumbnail, false);
+            update(thumbnail, false);
+        }, ModalityState.defaultModalityState(), myProject.getDisposed());
+    }
+
+    public void cancel() {
+        myRequestCount.incrementAndGet();
+    }
+
+    @Override
+    public void dispose() {
+        cancel();
+    }
+}
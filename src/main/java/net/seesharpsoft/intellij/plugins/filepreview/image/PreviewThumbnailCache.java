@@ -0,0 +1,275 @@
+package net.seesharpsoft.intellij.plugins.filepreview.image;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.LowMemoryWatcher;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Downsampled thumbnails of image files, decoded off the EDT - kept in a memory LRU (bounded by pixel bytes) and on disk below the IDE
+ * system directory (bounded by number of files). Keyed by path, time stamp and length of the file, so changed files are decoded again.
+ */
+public final class PreviewThumbnailCache implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(PreviewThumbnailCache.class);
+
+    // longest side of a thumbnail in pixels
+    public static final int MAX_THUMBNAIL_SIZE = 1024;
+    public static final long MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+    public static final int MAX_DISK_FILES = 2000;
+    private static final int DISK_TRIM_INTERVAL = 100;
+    private static final String THUMBNAIL_FORMAT = "png";
+
+    private final File myDiskCacheDirectory = new File(PathManager.getSystemPath(), "quick-file-preview" + File.separator + "thumbnails");
+    private final ExecutorService myExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Quick File Preview Thumbnails", 2);
+
+    private final LinkedHashMap<String, BufferedImage> myMemoryCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long myMemoryBytes;
+    private final AtomicInteger myDiskWriteCount = new AtomicInteger();
+
+    private final AtomicLong myMemoryHitCount = new AtomicLong();
+    private final AtomicLong myDiskHitCount = new AtomicLong();
+    private final AtomicLong myDecodeCount = new AtomicLong();
+
+    public static PreviewThumbnailCache getInstance() {
+        return ServiceManager.getService(PreviewThumbnailCache.class);
+    }
+
+    public PreviewThumbnailCache() {
+        LowMemoryWatcher.register(this::clearMemory, this);
+    }
+
+    @NotNull
+    public static String getKey(@NotNull VirtualFile file) {
+        // the time stamp survives restarts, the modification stamp doesn't
+        return file.getPath() + "@" + file.getTimeStamp() + "#" + file.getLength();
+    }
+
+    @Nullable
+    public BufferedImage getCached(@NotNull String key) {
+        synchronized (myMemoryCache) {
+            BufferedImage thumbnail = myMemoryCache.get(key);
+            if (thumbnail != null) {
+                myMemoryHitCount.incrementAndGet();
+            }
+            return thumbnail;
+        }
+    }
+
+    /**
+     * Loads the thumbnail on a pooled thread - skipped if obsolete by the time the task is executed.
+     * The consumer is called on the pooled thread, with null if the image could not be decoded.
+     */
+    public void load(@NotNull VirtualFile file, @NotNull BooleanSupplier obsolete, @NotNull Consumer<BufferedImage> onLoaded) {
+        final String key = getKey(file);
+        final String path = file.getPath();
+        myExecutor.execute(() -> {
+            if (obsolete.getAsBoolean()) {
+                return;
+            }
+            BufferedImage thumbnail = getCached(key);
+            if (thumbnail == null) {
+                thumbnail = loadThumbnail(key, path);
+            }
+            onLoaded.accept(thumbnail);
+        });
+    }
+
+    @Nullable
+    private BufferedImage loadThumbnail(@NotNull String key, @NotNull String path) {
+        File diskFile = getDiskFile(key);
+        BufferedImage thumbnail = null;
+        if (diskFile.isFile()) {
+            try {
+                thumbnail = ImageIO.read(diskFile);
+                if (thumbnail != null) {
+                    myDiskHitCount.incrementAndGet();
+                    // LRU on disk
+                    diskFile.setLastModified(System.currentTimeMillis());
+                }
+            } catch (IOException exc) {
+                LOG.debug("thumbnail could not be read from disk cache", exc);
+            }
+        }
+        if (thumbnail == null) {
+            thumbnail = decode(new File(path));
+            if (thumbnail == null) {
+                return null;
+            }
+            myDecodeCount.incrementAndGet();
+            writeToDisk(diskFile, thumbnail);
+        }
+        putInMemory(key, thumbnail);
+        return thumbnail;
+    }
+
+    /**
+     * Only every n-th pixel is read for large images (subsampling) - the full resolution image is never held in memory.
+     */
+    @Nullable
+    static BufferedImage decode(@NotNull File file) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int subsampling = Math.max(1, (int) Math.ceil(Math.max(reader.getWidth(0), reader.getHeight(0)) / (double) MAX_THUMBNAIL_SIZE));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return scaleToFit(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException exc) {
+            // e.g. corrupt or unsupported image
+            LOG.debug("thumbnail could not be decoded: " + file, exc);
+            return null;
+        }
+    }
+
+    @NotNull
+    private static BufferedImage scaleToFit(@NotNull BufferedImage image) {
+        int longestSide = Math.max(image.getWidth(), image.getHeight());
+        if (longestSide <= MAX_THUMBNAIL_SIZE) {
+            return image;
+        }
+        double scale = (double) MAX_THUMBNAIL_SIZE / longestSide;
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    private void putInMemory(@NotNull String key, @NotNull BufferedImage thumbnail) {
+        synchronized (myMemoryCache) {
+            BufferedImage previous = myMemoryCache.put(key, thumbnail);
+            if (previous != null) {
+                myMemoryBytes -= getBytes(previous);
+            }
+            myMemoryBytes += getBytes(thumbnail);
+            Iterator<BufferedImage> eldest = myMemoryCache.values().iterator();
+            while (myMemoryBytes > MAX_MEMORY_BYTES && eldest.hasNext()) {
+                myMemoryBytes -= getBytes(eldest.next());
+                eldest.remove();
+            }
+        }
+    }
+
+    private static long getBytes(@NotNull BufferedImage image) {
+        return 4L * image.getWidth() * image.getHeight();
+    }
+
+    private void writeToDisk(@NotNull File diskFile, @NotNull BufferedImage thumbnail) {
+        try {
+            FileUtil.createParentDirs(diskFile);
+            ImageIO.write(thumbnail, THUMBNAIL_FORMAT, diskFile);
+        } catch (IOException exc) {
+            LOG.debug("thumbnail could not be written to disk cache", exc);
+            return;
+        }
+        if (myDiskWriteCount.getAndIncrement() % DISK_TRIM_INTERVAL == 0) {
+            trimDisk();
+        }
+    }
+
+    private void trimDisk() {
+        File[] files = myDiskCacheDirectory.listFiles();
+        if (files == null || files.length <= MAX_DISK_FILES) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - MAX_DISK_FILES; ++i) {
+            FileUtil.delete(files[i]);
+        }
+    }
+
+    @NotNull
+    private File getDiskFile(@NotNull String key) {
+        return new File(myDiskCacheDirectory, hash(key) + "." + THUMBNAIL_FORMAT);
+    }
+
+    @NotNull
+    private static String hash(@NotNull String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte value : digest) {
+                builder.append(String.format("%02x", value));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException exc) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    public void clearMemory() {
+        synchronized (myMemoryCache) {
+            myMemoryCache.clear();
+            myMemoryBytes = 0;
+        }
+    }
+
+    public long getMemoryHitCount() {
+        return myMemoryHitCount.get();
+    }
+
+    public long getDiskHitCount() {
+        return myDiskHitCount.get();
+    }
+
+    public long getDecodeCount() {
+        return myDecodeCount.get();
+    }
+
+    public long getMemoryBytes() {
+        synchronized (myMemoryCache) {
+            return myMemoryBytes;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        myExecutor.shutdownNow();
+        clearMemory();
+    }
+}
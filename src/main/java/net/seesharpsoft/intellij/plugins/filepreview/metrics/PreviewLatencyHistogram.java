@@ -0,0 +1,80 @@
+package net.seesharpsoft.intellij.plugins.filepreview.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of latencies in microseconds - 8 sub-buckets per power of two, i.e. values are accurate by ~12.5%.
+ */
+public class PreviewLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray myBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong myCount = new AtomicLong();
+    private final AtomicLong myMax = new AtomicLong();
+
+    static int getBucketIndex(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int) Math.max(0, micros);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long getBucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKET_COUNT;
+        return (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    public void recordNanos(long nanos) {
+        long micros = nanos / 1000;
+        myBuckets.incrementAndGet(getBucketIndex(micros));
+        myCount.incrementAndGet();
+        myMax.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getCount() {
+        return myCount.get();
+    }
+
+    public long getMaxMicros() {
+        return myMax.get();
+    }
+
+    /**
+     * @param percentile value between 0 and 100
+     * @return upper bound (in microseconds) of the bucket containing the given percentile, 0 if nothing was recorded yet
+     */
+    public long getPercentileMicros(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += myBuckets.get(i);
+            if (seen >= rank) {
+                long upperBound = i + 1 < BUCKET_COUNT ? getBucketLowerBound(i + 1) - 1 : Long.MAX_VALUE;
+                return Math.min(upperBound, getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            myBuckets.set(i, 0);
+        }
+        myCount.set(0);
+        myMax.set(0);
+    }
+}
@@ -0,0 +1,16 @@
+package net.seesharpsoft.intellij.plugins.filepreview.metrics;
+
+public enum PreviewLatencyStage {
+    // tree selection event until the selection settled
+    SELECTION_SETTLE,
+    // waiting for the tool window to be ready and the data context to be available
+    DATA_CONTEXT,
+    // PSI based resolution of the file to open
+    GOTO_RESOLUTION,
+    // preparing the preview incl. loading the document
+    DOCUMENT_LOAD,
+    // opening the editor until it was painted
+    EDITOR_OPEN,
+    // tree selection event until the preview editor is visible
+    TOTAL
+}
@@ -0,0 +1,50 @@
+package net.seesharpsoft.intellij.plugins.filepreview.metrics;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Latency trace of a single preview interaction - started at the tree event, each stage records the time passed since the previous one.
+ * A new tree event replaces the current trace, so only interactions that actually open a preview are recorded completely.
+ */
+public final class PreviewLatencyTrace {
+
+    private static final Key<PreviewLatencyTrace> CURRENT_TRACE_KEY = Key.create(PreviewLatencyTrace.class.getName() + "$CURRENT_TRACE");
+
+    private final long myStartTime;
+    private long myLastMarkTime;
+
+    private PreviewLatencyTrace() {
+        myStartTime = System.nanoTime();
+        myLastMarkTime = myStartTime;
+    }
+
+    public static void start(@NotNull Project project) {
+        project.putUserData(CURRENT_TRACE_KEY, new PreviewLatencyTrace());
+    }
+
+    public static void mark(@NotNull Project project, @NotNull PreviewLatencyStage stage) {
+        PreviewLatencyTrace trace = project.getUserData(CURRENT_TRACE_KEY);
+        if (trace != null) {
+            long now = System.nanoTime();
+            PreviewMetrics.getInstance().record(stage, now - trace.myLastMarkTime);
+            trace.myLastMarkTime = now;
+        }
+    }
+
+    public static void finish(@NotNull Project project, @NotNull PreviewLatencyStage lastStage) {
+        PreviewLatencyTrace trace = project.getUserData(CURRENT_TRACE_KEY);
+        if (trace != null) {
+            mark(project, lastStage);
+            PreviewMetrics.getInstance().record(PreviewLatencyStage.TOTAL, trace.myLastMarkTime - trace.myStartTime);
+            if (project.getUserData(CURRENT_TRACE_KEY) == trace) {
+                project.putUserData(CURRENT_TRACE_KEY, null);
+            }
+        }
+    }
+
+    public static void cancel(@NotNull Project project) {
+        project.putUserData(CURRENT_TRACE_KEY, null);
+    }
+}
@@ -0,0 +1,235 @@
+package net.seesharpsoft.intellij.plugins.filepreview.metrics;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewGotoFileCache;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewPopup;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewPrefetcher;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewSlot;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewUtil;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewViewportCache;
+import net.seesharpsoft.intellij.plugins.filepreview.archive.PreviewArchivePreview;
+import net.seesharpsoft.intellij.plugins.filepreview.directory.PreviewDirectoryPreview;
+import net.seesharpsoft.intellij.plugins.filepreview.image.PreviewThumbnailCache;
+import net.seesharpsoft.intellij.plugins.filepreview.vcs.PreviewDiffLoader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class PreviewMetrics implements PreviewMetricsMBean, Disposable {
+
+    private static final Logger LOG = Logger.getInstance(PreviewMetrics.class);
+
+    // time added to opening a project - kept below this budget, otherwise a warning is logged
+    public static final long STARTUP_BUDGET_MS = 50;
+
+    private final Map<PreviewLatencyStage, PreviewLatencyHistogram> myHistograms = new EnumMap<>(PreviewLatencyStage.class);
+    private final Map<PreviewStartupPhase, AtomicLong> myStartupNanos = new EnumMap<>(PreviewStartupPhase.class);
+    private final AtomicLong myStartupCount = new AtomicLong();
+    private final AtomicLong myLazyRegistrationCount = new AtomicLong();
+
+    private ObjectName myObjectName;
+
+    public static PreviewMetrics getInstance() {
+        return ServiceManager.getService(PreviewMetrics.class);
+    }
+
+    public PreviewMetrics() {
+        for (PreviewLatencyStage stage : PreviewLatencyStage.values()) {
+            myHistograms.put(stage, new PreviewLatencyHistogram());
+        }
+        for (PreviewStartupPhase phase : PreviewStartupPhase.values()) {
+            myStartupNanos.put(phase, new AtomicLong());
+        }
+        registerMBean();
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+                myObjectName = objectName;
+            }
+        } catch (JMException exc) {
+            LOG.warn("preview metrics MBean could not be registered", exc);
+        }
+    }
+
+    public void record(@NotNull PreviewLatencyStage stage, long nanos) {
+        myHistograms.get(stage).recordNanos(nanos);
+    }
+
+    public void recordStartup(@NotNull PreviewStartupPhase phase, long nanos) {
+        if (phase == PreviewStartupPhase.LAZY_TREE_REGISTRATION) {
+            myLazyRegistrationCount.incrementAndGet();
+        }
+        myStartupNanos.get(phase).addAndGet(nanos);
+    }
+
+    /**
+     * Called once per opened project after the initial registration - logs the startup cost of that project.
+     */
+    public void startupFinished(@NotNull Project project, long serviceNanos, long handlerNanos, long registrationNanos) {
+        myStartupCount.incrementAndGet();
+        recordStartup(PreviewStartupPhase.SERVICE_CREATION, serviceNanos);
+        recordStartup(PreviewStartupPhase.HANDLER_CONSTRUCTION, handlerNanos);
+        recordStartup(PreviewStartupPhase.TREE_REGISTRATION, registrationNanos);
+
+        long totalMs = (serviceNanos + handlerNanos + registrationNanos) / 1_000_000;
+        String message = String.format("startup of '%s' took %d ms (services %.2f ms, handler %.2f ms, tree registration %.2f ms)",
+                project.getName(), totalMs, serviceNanos / 1e6, handlerNanos / 1e6, registrationNanos / 1e6);
+        if (totalMs > STARTUP_BUDGET_MS) {
+            LOG.warn(message + " - exceeds budget of " + STARTUP_BUDGET_MS + " ms");
+        } else {
+            LOG.info(message);
+        }
+    }
+
+    @Override
+    public long getStartupMicros(String phase) {
+        PreviewStartupPhase startupPhase = findByName(PreviewStartupPhase.class, phase);
+        return startupPhase == null ? -1 : myStartupNanos.get(startupPhase).get() / 1000;
+    }
+
+    @NotNull
+    public PreviewLatencyHistogram getHistogram(@NotNull PreviewLatencyStage stage) {
+        return myHistograms.get(stage);
+    }
+
+    @Override
+    public String getReport() {
+        return getReport(null);
+    }
+
+    public String getReport(@Nullable Project project) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-18s %8s %10s %10s %10s %10s%n", "stage", "count", "p50 [ms]", "p95 [ms]", "p99 [ms]", "max [ms]"));
+        for (PreviewLatencyStage stage : PreviewLatencyStage.values()) {
+            PreviewLatencyHistogram histogram = getHistogram(stage);
+            builder.append(String.format("%-18s %8d %10.2f %10.2f %10.2f %10.2f%n",
+                    stage.name(),
+                    histogram.getCount(),
+                    histogram.getPercentileMicros(50) / 1000.0,
+                    histogram.getPercentileMicros(95) / 1000.0,
+                    histogram.getPercentileMicros(99) / 1000.0,
+                    histogram.getMaxMicros() / 1000.0));
+        }
+        long startupCount = myStartupCount.get();
+        if (startupCount > 0) {
+            builder.append(String.format("%nstartup (%d projects, avg [ms]):", startupCount));
+            for (PreviewStartupPhase phase : PreviewStartupPhase.values()) {
+                if (phase != PreviewStartupPhase.LAZY_TREE_REGISTRATION) {
+                    builder.append(String.format(" %s %.2f", phase.name().toLowerCase(Locale.ROOT), myStartupNanos.get(phase).get() / 1e6 / startupCount));
+                }
+            }
+            builder.append(String.format("%n"));
+        }
+        long lazyRegistrationCount = myLazyRegistrationCount.get();
+        if (lazyRegistrationCount > 0) {
+            builder.append(String.format("lazy tree registration (%d tool windows, avg [ms]): %.2f%n",
+                    lazyRegistrationCount, myStartupNanos.get(PreviewStartupPhase.LAZY_TREE_REGISTRATION).get() / 1e6 / lazyRegistrationCount));
+        }
+        // services never created (e.g. of disabled features) are skipped - reading the report must not create them
+        PreviewThumbnailCache thumbnailCache = ServiceManager.getServiceIfCreated(PreviewThumbnailCache.class);
+        if (thumbnailCache != null) {
+            builder.append(String.format("%nimage thumbnails: %d memory hits, %d disk hits, %d decodes, %d kByte in memory%n",
+                    thumbnailCache.getMemoryHitCount(), thumbnailCache.getDiskHitCount(), thumbnailCache.getDecodeCount(), thumbnailCache.getMemoryBytes() / 1024));
+        }
+        if (!PreviewUtil.isValid(project)) {
+            return builder.toString();
+        }
+        PreviewGotoFileCache gotoFileCache = ServiceManager.getServiceIfCreated(project, PreviewGotoFileCache.class);
+        if (gotoFileCache != null) {
+            builder.append(String.format("goto file cache: %d hits, %d misses, %d entries%n",
+                    gotoFileCache.getHitCount(), gotoFileCache.getMissCount(), gotoFileCache.size()));
+        }
+        PreviewSlot previewSlot = ServiceManager.getServiceIfCreated(project, PreviewSlot.class);
+        if (previewSlot != null) {
+            builder.append(String.format("preview slot: %d editor creations and %d editor disposals avoided, %d ring hits%n",
+                    previewSlot.getAvoidedEditorCreationCount(), previewSlot.getAvoidedEditorDisposalCount(), previewSlot.getRingHitCount()));
+        }
+        PreviewPopup previewPopup = ServiceManager.getServiceIfCreated(project, PreviewPopup.class);
+        if (previewPopup != null) {
+            builder.append(String.format("preview popup: %d previews shown without editor tab%n", previewPopup.getShowCount()));
+        }
+        PreviewDirectoryPreview directoryPreview = ServiceManager.getServiceIfCreated(project, PreviewDirectoryPreview.class);
+        if (directoryPreview != null) {
+            builder.append(String.format("directory preview: %d cache hits, %d walks%n", directoryPreview.getHitCount(), directoryPreview.getMissCount()));
+        }
+        PreviewArchivePreview archivePreview = ServiceManager.getServiceIfCreated(project, PreviewArchivePreview.class);
+        if (archivePreview != null) {
+            builder.append(String.format("archive preview: %d cache hits, %d entries loaded%n", archivePreview.getHitCount(), archivePreview.getMissCount()));
+        }
+        PreviewDiffLoader diffLoader = ServiceManager.getServiceIfCreated(project, PreviewDiffLoader.class);
+        if (diffLoader != null) {
+            builder.append(String.format("diff preview: %d cache hits, %d diffs loaded%n", diffLoader.getHitCount(), diffLoader.getMissCount()));
+        }
+        PreviewViewportCache viewportCache = ServiceManager.getServiceIfCreated(project, PreviewViewportCache.class);
+        if (viewportCache != null) {
+            builder.append(String.format("viewport cache: %d restores, %d entries%n", viewportCache.getRestoreCount(), viewportCache.size()));
+        }
+        PreviewPrefetcher prefetcher = ServiceManager.getServiceIfCreated(project, PreviewPrefetcher.class);
+        if (prefetcher != null) {
+            builder.append(String.format("prefetcher: %d documents prefetched, %d hits, %d kByte retained%n",
+                    prefetcher.getPrefetchCount(), prefetcher.getHitCount(), prefetcher.getRetainedSize() / 1024));
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String[] getStageNames() {
+        return Arrays.stream(PreviewLatencyStage.values()).map(Enum::name).toArray(String[]::new);
+    }
+
+    @Nullable
+    private static <T extends Enum<T>> T findByName(@NotNull Class<T> enumClass, String name) {
+        try {
+            return name == null ? null : Enum.valueOf(enumClass, name);
+        } catch (IllegalArgumentException exc) {
+            return null;
+        }
+    }
+
+    @Override
+    public long getCount(String stage) {
+        PreviewLatencyStage latencyStage = findByName(PreviewLatencyStage.class, stage);
+        return latencyStage == null ? -1 : getHistogram(latencyStage).getCount();
+    }
+
+    @Override
+    public long getPercentileMicros(String stage, double percentile) {
+        PreviewLatencyStage latencyStage = findByName(PreviewLatencyStage.class, stage);
+        return latencyStage == null ? -1 : getHistogram(latencyStage).getPercentileMicros(percentile);
+    }
+
+    @Override
+    public void reset() {
+        myHistograms.values().forEach(PreviewLatencyHistogram::reset);
+    }
+
+    @Override
+    public void dispose() {
+        if (myObjectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(myObjectName);
+        } catch (JMException exc) {
+            LOG.warn("preview metrics MBean could not be unregistered", exc);
+        }
+        myObjectName = null;
+    }
+}
@@ -0,0 +1,22 @@
+package net.seesharpsoft.intellij.plugins.filepreview.metrics;
+
+/**
+ * Stages and phases are passed by name - an unknown name yields -1.
+ */
+public interface PreviewMetricsMBean {
+
+    String OBJECT_NAME = "net.seesharpsoft.intellij.plugins.filepreview:type=PreviewMetrics";
+
+    String getReport();
+
+    String[] getStageNames();
+
+    long getCount(String stage);
+
+    long getPercentileMicros(String stage, double percentile);
+
+    // accumulated time of the startup phase
+    long getStartupMicros(String phase);
+
+    void reset();
+}
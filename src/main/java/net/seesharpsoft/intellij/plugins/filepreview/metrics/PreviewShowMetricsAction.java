@@ -0,0 +1,19 @@
+package net.seesharpsoft.intellij.plugins.filepreview.metrics;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+
+public class PreviewShowMetricsAction extends AnAction implements DumbAware {
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        String report = "<html><pre>" + StringUtil.escapeXml(PreviewMetrics.getInstance().getReport(e.getProject())) + "</pre></html>";
+        if (Messages.showOkCancelDialog(e.getProject(), report, "Quick File Preview Statistics", "Close", "Reset", null) == Messages.CANCEL) {
+            PreviewMetrics.getInstance().reset();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package net.seesharpsoft.intellij.plugins.filepreview.metrics;
+
+public enum PreviewStartupPhase {
+    // creation of the services required by the project handler
+    SERVICE_CREATION,
+    // construction of the project handler incl. message bus subscriptions
+    HANDLER_CONSTRUCTION,
+    // registration of tool window handlers and trees while opening the project
+    TREE_REGISTRATION,
+    // registration of tool windows activated later on first show - not part of the startup of a project
+    LAZY_TREE_REGISTRATION
+}
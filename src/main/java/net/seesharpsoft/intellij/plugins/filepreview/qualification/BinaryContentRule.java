@@ -0,0 +1,55 @@
+package net.seesharpsoft.intellij.plugins.filepreview.qualification;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Rejects local files of a text file type whose header contains NUL bytes, i.e. binary files with a misleading name.
+ */
+public class BinaryContentRule implements PreviewQualificationRule {
+
+    public static final int HEADER_SIZE = 1024;
+
+    @Nullable
+    @Override
+    public PreviewQualification evaluate(@NotNull VirtualFile file) {
+        if (file.isDirectory() || !file.isInLocalFileSystem() || file.getFileType().isBinary()) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(Paths.get(file.getPath()), StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // fill header
+            }
+        } catch (IOException exc) {
+            // can't be sniffed - let the editor decide
+            return null;
+        }
+        header.flip();
+        return isBinary(header) ? PreviewQualification.REJECTED : null;
+    }
+
+    static boolean isBinary(@NotNull ByteBuffer header) {
+        if (header.remaining() >= 2) {
+            int b0 = header.get(0) & 0xFF;
+            int b1 = header.get(1) & 0xFF;
+            // UTF-16 byte order marks - NUL bytes are expected
+            if ((b0 == 0xFE && b1 == 0xFF) || (b0 == 0xFF && b1 == 0xFE)) {
+                return false;
+            }
+        }
+        while (header.hasRemaining()) {
+            if (header.get() == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,50 @@
+package net.seesharpsoft.intellij.plugins.filepreview.qualification;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Applies the size limit of the file type (by name, case insensitive) or the global size limit - a limit of 0 means no limit.
+ */
+public class FileSizeRule implements PreviewQualificationRule {
+
+    private final long myDefaultLimitBytes;
+    private final Map<String, Long> myLimitBytesByFileType;
+    private final boolean myOversizedFilesReadOnly;
+
+    public FileSizeRule(long defaultLimitBytes, @NotNull Map<String, Long> limitBytesByFileType, boolean oversizedFilesReadOnly) {
+        myDefaultLimitBytes = defaultLimitBytes;
+        myLimitBytesByFileType = limitBytesByFileType;
+        myOversizedFilesReadOnly = oversizedFilesReadOnly;
+    }
+
+    public boolean isEmpty() {
+        return myDefaultLimitBytes <= 0 && myLimitBytesByFileType.isEmpty();
+    }
+
+    protected long getLimitBytes(@NotNull VirtualFile file) {
+        if (myLimitBytesByFileType.isEmpty()) {
+            return myDefaultLimitBytes;
+        }
+        Long limit = myLimitBytesByFileType.get(file.getFileType().getName().toLowerCase(Locale.ROOT));
+        return limit == null ? myDefaultLimitBytes : limit;
+    }
+
+    @Nullable
+    @Override
+    public PreviewQualification evaluate(@NotNull VirtualFile file) {
+        if (file.isDirectory()) {
+            return null;
+        }
+        long limit = getLimitBytes(file);
+        if (limit <= 0 || file.getLength() <= limit) {
+            return null;
+        }
+        // the read-only viewer maps the file from disk
+        return myOversizedFilesReadOnly && file.isInLocalFileSystem() ? PreviewQualification.OVERSIZED : PreviewQualification.REJECTED;
+    }
+}
@@ -0,0 +1,23 @@
+package net.seesharpsoft.intellij.plugins.filepreview.qualification;
+
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileTypes.UnknownFileType;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Rejects files of binary or unknown file type.
+ */
+public class KnownFileTypeRule implements PreviewQualificationRule {
+
+    @Nullable
+    @Override
+    public PreviewQualification evaluate(@NotNull VirtualFile file) {
+        if (file.isDirectory()) {
+            return null;
+        }
+        FileType type = file.getFileType();
+        return type.isBinary() || type == UnknownFileType.INSTANCE ? PreviewQualification.REJECTED : null;
+    }
+}
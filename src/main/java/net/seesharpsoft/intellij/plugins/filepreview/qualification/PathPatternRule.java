@@ -0,0 +1,45 @@
+package net.seesharpsoft.intellij.plugins.filepreview.qualification;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Rejects files matching any of the given Ant-style patterns, e.g. <code>**&#47;node_modules/**</code> or <code>*.min.js</code>.
+ */
+public class PathPatternRule implements PreviewQualificationRule {
+
+    private final List<Pattern> myPatterns;
+
+    public PathPatternRule(@NotNull List<String> antPatterns) {
+        myPatterns = new ArrayList<>(antPatterns.size());
+        for (String antPattern : antPatterns) {
+            // patterns not starting at root match in any directory
+            String pattern = antPattern.startsWith("/") || antPattern.startsWith("**") ? antPattern : "**/" + antPattern;
+            myPatterns.add(Pattern.compile(FileUtil.convertAntToRegexp(pattern), Pattern.CASE_INSENSITIVE));
+        }
+    }
+
+    public boolean isEmpty() {
+        return myPatterns.isEmpty();
+    }
+
+    @Nullable
+    @Override
+    public PreviewQualification evaluate(@NotNull VirtualFile file) {
+        // the patterns are converted without leading slash - "**/" requires a non-empty first path segment
+        String path = StringUtil.trimStart(file.getPath(), "/");
+        for (Pattern pattern : myPatterns) {
+            if (pattern.matcher(path).matches()) {
+                return PreviewQualification.REJECTED;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,10 @@
+package net.seesharpsoft.intellij.plugins.filepreview.qualification;
+
+public enum PreviewQualification {
+    // preview in standard editor
+    QUALIFIED,
+    // exceeds the size limit but can be shown in the lightweight read-only viewer
+    OVERSIZED,
+    // no preview
+    REJECTED
+}
@@ -0,0 +1,13 @@
+package net.seesharpsoft.intellij.plugins.filepreview.qualification;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public interface PreviewQualificationRule {
+    /**
+     * @return the verdict for the given file, or null if this rule has no objection and the next rule should decide
+     */
+    @Nullable
+    PreviewQualification evaluate(@NotNull VirtualFile file);
+}
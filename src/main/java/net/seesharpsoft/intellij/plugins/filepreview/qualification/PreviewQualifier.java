@@ -0,0 +1,64 @@
+package net.seesharpsoft.intellij.plugins.filepreview.qualification;
+
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Evaluates a chain of rules - the first verdict wins, files no rule objects to are qualified. The verdict is cached on the file
+ * and re-evaluated only if the file got modified or the rules changed.
+ */
+public final class PreviewQualifier {
+
+    private static final Key<CachedQualification> CACHED_QUALIFICATION_KEY = Key.create(PreviewQualifier.class.getName() + "$CACHED_QUALIFICATION");
+
+    private final PreviewQualificationRule[] myRules;
+
+    public PreviewQualifier(@NotNull List<PreviewQualificationRule> rules) {
+        myRules = rules.toArray(new PreviewQualificationRule[0]);
+    }
+
+    @NotNull
+    public PreviewQualification qualify(@NotNull VirtualFile file) {
+        if (myRules.length == 0) {
+            return PreviewQualification.QUALIFIED;
+        }
+        long modificationStamp = file.getModificationStamp();
+        CachedQualification cachedQualification = file.getUserData(CACHED_QUALIFICATION_KEY);
+        if (cachedQualification != null && cachedQualification.isValid(this, modificationStamp)) {
+            return cachedQualification.myQualification;
+        }
+        PreviewQualification qualification = evaluate(file);
+        file.putUserData(CACHED_QUALIFICATION_KEY, new CachedQualification(this, modificationStamp, qualification));
+        return qualification;
+    }
+
+    @NotNull
+    PreviewQualification evaluate(@NotNull VirtualFile file) {
+        for (PreviewQualificationRule rule : myRules) {
+            PreviewQualification qualification = rule.evaluate(file);
+            if (qualification != null) {
+                return qualification;
+            }
+        }
+        return PreviewQualification.QUALIFIED;
+    }
+
+    private static final class CachedQualification {
+        private final PreviewQualifier myQualifier;
+        private final long myModificationStamp;
+        private final PreviewQualification myQualification;
+
+        CachedQualification(PreviewQualifier qualifier, long modificationStamp, PreviewQualification qualification) {
+            myQualifier = qualifier;
+            myModificationStamp = modificationStamp;
+            myQualification = qualification;
+        }
+
+        boolean isValid(PreviewQualifier qualifier, long modificationStamp) {
+            return myQualifier == qualifier && myModificationStamp == modificationStamp;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package net.seesharpsoft.intellij.plugins.filepreview.trace;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public final class PreviewEvent {
+
+    private final PreviewEventType myType;
+    private final long myTimestampNanos;
+    private final int myArg;
+    private final String myPath;
+
+    public PreviewEvent(@NotNull PreviewEventType type, long timestampNanos, int arg, @Nullable String path) {
+        myType = type;
+        myTimestampNanos = timestampNanos;
+        myArg = arg;
+        myPath = path;
+    }
+
+    @NotNull
+    public PreviewEventType getType() {
+        return myType;
+    }
+
+    public long getTimestampNanos() {
+        return myTimestampNanos;
+    }
+
+    public int getArg() {
+        return myArg;
+    }
+
+    @Nullable
+    public String getPath() {
+        return myPath;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d %s %d %s", myTimestampNanos, myType, myArg, myPath == null ? "" : myPath);
+    }
+}
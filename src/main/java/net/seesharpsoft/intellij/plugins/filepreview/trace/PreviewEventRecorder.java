@@ -0,0 +1,62 @@
+package net.seesharpsoft.intellij.plugins.filepreview.trace;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Records the UI events driving the preview of a project into a {@link PreviewEventTrace} if enabled in the settings. Paths inside the project
+ * are stored relative to the project base directory, so that a trace can be replayed against another project with the same layout - paths
+ * outside the project (e.g. of libraries or the user home) are not stored at all.
+ */
+public final class PreviewEventRecorder {
+
+    public static final int CAPACITY = 4096;
+
+    private final String myBasePathPrefix;
+    private final PreviewEventTrace myTrace = new PreviewEventTrace(CAPACITY);
+
+    public static PreviewEventRecorder getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, PreviewEventRecorder.class);
+    }
+
+    public PreviewEventRecorder(@NotNull Project project) {
+        String basePath = project.getBasePath();
+        myBasePathPrefix = basePath == null ? null : basePath + "/";
+    }
+
+    private static boolean isEnabled() {
+        return PreviewSettings.getInstance().getSnapshot().isEventRecording();
+    }
+
+    public void record(@NotNull PreviewEventType type, int arg) {
+        if (!isEnabled()) {
+            return;
+        }
+        myTrace.record(type, System.nanoTime(), arg, null);
+    }
+
+    public void record(@NotNull PreviewEventType type, @Nullable VirtualFile file) {
+        if (!isEnabled()) {
+            return;
+        }
+        myTrace.record(type, System.nanoTime(), 0, getPath(file));
+    }
+
+    @Nullable
+    private String getPath(@Nullable VirtualFile file) {
+        if (file == null || myBasePathPrefix == null) {
+            return null;
+        }
+        String path = file.getPath();
+        return path.startsWith(myBasePathPrefix) ? path.substring(myBasePathPrefix.length()) : null;
+    }
+
+    @NotNull
+    public PreviewEventTrace getTrace() {
+        return myTrace;
+    }
+}
@@ -0,0 +1,183 @@
+package net.seesharpsoft.intellij.plugins.filepreview.trace;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ring buffer of fixed size binary event records - once full, the oldest records are overwritten. Paths are stored once in a
+ * path table and referenced by index. Path entries are reference counted and reused once no record refers to them anymore,
+ * so the path table never holds more entries than the ring has records.
+ * <p>
+ * Record layout (16 bytes): timestamp nanos (long), event type (byte), unused (byte), arg (short), path index or -1 (int)
+ */
+public final class PreviewEventTrace {
+
+    public static final int RECORD_SIZE = 16;
+
+    private static final int MAGIC = 0x51465054; // "QFPT"
+    private static final int VERSION = 1;
+
+    private final int myCapacity;
+    private final ByteBuffer myBuffer;
+    private long myRecordCount;
+
+    // at most one path per record - indices are bounded by the capacity
+    private final String[] myPaths;
+    private final int[] myPathReferenceCounts;
+    private final int[] myFreePathIndices;
+    private int myFreePathIndexCount;
+    private int myNextPathIndex;
+    private final Map<String, Integer> myPathIndices = new HashMap<>();
+
+    public PreviewEventTrace(int capacity) {
+        myCapacity = capacity;
+        myBuffer = ByteBuffer.allocate(capacity * RECORD_SIZE);
+        myPaths = new String[capacity];
+        myPathReferenceCounts = new int[capacity];
+        myFreePathIndices = new int[capacity];
+    }
+
+    public synchronized void record(@NotNull PreviewEventType type, long timestampNanos, int arg, @Nullable String path) {
+        int offset = (int) (myRecordCount % myCapacity) * RECORD_SIZE;
+        if (myRecordCount >= myCapacity) {
+            // the overwritten record releases its path
+            releasePathIndex(myBuffer.getInt(offset + 12));
+        }
+        ++myRecordCount;
+        myBuffer.putLong(offset, timestampNanos);
+        myBuffer.put(offset + 8, (byte) type.ordinal());
+        myBuffer.put(offset + 9, (byte) 0);
+        myBuffer.putShort(offset + 10, (short) arg);
+        myBuffer.putInt(offset + 12, path == null ? -1 : acquirePathIndex(path));
+    }
+
+    private int acquirePathIndex(@NotNull String path) {
+        Integer index = myPathIndices.get(path);
+        if (index == null) {
+            index = myFreePathIndexCount > 0 ? myFreePathIndices[--myFreePathIndexCount] : myNextPathIndex++;
+            myPaths[index] = path;
+            myPathIndices.put(path, index);
+        }
+        ++myPathReferenceCounts[index];
+        return index;
+    }
+
+    private void releasePathIndex(int index) {
+        if (index < 0 || --myPathReferenceCounts[index] > 0) {
+            return;
+        }
+        myPathIndices.remove(myPaths[index]);
+        myPaths[index] = null;
+        myFreePathIndices[myFreePathIndexCount++] = index;
+    }
+
+    /**
+     * @return number of distinct paths referenced by the recorded events
+     */
+    public synchronized int getPathCount() {
+        return myPathIndices.size();
+    }
+
+    public synchronized int size() {
+        return (int) Math.min(myRecordCount, myCapacity);
+    }
+
+    public int getCapacity() {
+        return myCapacity;
+    }
+
+    public synchronized void clear() {
+        myRecordCount = 0;
+        Arrays.fill(myPaths, null);
+        Arrays.fill(myPathReferenceCounts, 0);
+        myFreePathIndexCount = 0;
+        myNextPathIndex = 0;
+        myPathIndices.clear();
+    }
+
+    /**
+     * @return the recorded events, oldest first
+     */
+    @NotNull
+    public synchronized List<PreviewEvent> getEvents() {
+        int size = size();
+        List<PreviewEvent> events = new ArrayList<>(size);
+        long first = myRecordCount - size;
+        for (long i = first; i < myRecordCount; ++i) {
+            int offset = (int) (i % myCapacity) * RECORD_SIZE;
+            PreviewEventType type = PreviewEventType.fromOrdinal(myBuffer.get(offset + 8));
+            if (type == null) {
+                continue;
+            }
+            int pathIndex = myBuffer.getInt(offset + 12);
+            events.add(new PreviewEvent(type, myBuffer.getLong(offset), myBuffer.getShort(offset + 10) & 0xFFFF,
+                    pathIndex < 0 ? null : myPaths[pathIndex]));
+        }
+        return events;
+    }
+
+    public void writeTo(@NotNull DataOutputStream out) throws IOException {
+        List<PreviewEvent> events = getEvents();
+        List<String> paths = new ArrayList<>();
+        Map<String, Integer> pathIndices = new HashMap<>();
+        for (PreviewEvent event : events) {
+            if (event.getPath() != null && !pathIndices.containsKey(event.getPath())) {
+                pathIndices.put(event.getPath(), paths.size());
+                paths.add(event.getPath());
+            }
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(paths.size());
+        for (String path : paths) {
+            out.writeUTF(path);
+        }
+        out.writeInt(events.size());
+        for (PreviewEvent event : events) {
+            out.writeLong(event.getTimestampNanos());
+            out.writeByte(event.getType().ordinal());
+            out.writeByte(0);
+            out.writeShort(event.getArg());
+            out.writeInt(event.getPath() == null ? -1 : pathIndices.get(event.getPath()));
+        }
+        out.flush();
+    }
+
+    @NotNull
+    public static PreviewEventTrace readFrom(@NotNull DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a preview event trace");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException(String.format("unsupported preview event trace version %d", version));
+        }
+        List<String> paths = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; --i) {
+            paths.add(in.readUTF());
+        }
+        int size = in.readInt();
+        PreviewEventTrace trace = new PreviewEventTrace(Math.max(1, size));
+        for (int i = 0; i < size; ++i) {
+            long timestampNanos = in.readLong();
+            PreviewEventType type = PreviewEventType.fromOrdinal(in.readByte());
+            in.readByte();
+            int arg = in.readShort() & 0xFFFF;
+            int pathIndex = in.readInt();
+            if (type != null) {
+                trace.record(type, timestampNanos, arg, pathIndex < 0 || pathIndex >= paths.size() ? null : paths.get(pathIndex));
+            }
+        }
+        return trace;
+    }
+}
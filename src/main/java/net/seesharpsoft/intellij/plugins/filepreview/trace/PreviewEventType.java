@@ -0,0 +1,22 @@
+package net.seesharpsoft.intellij.plugins.filepreview.trace;
+
+public enum PreviewEventType {
+    // path: newly selected file in tree
+    TREE_SELECTION,
+    // arg: click count | button << 8
+    MOUSE_RELEASED,
+    // arg: key code
+    KEY_PRESSED,
+    // path: opened file
+    FILE_OPENED,
+    // path: closed file
+    FILE_CLOSED,
+    // path: file of newly selected editor
+    EDITOR_SELECTION_CHANGED;
+
+    private static final PreviewEventType[] VALUES = values();
+
+    public static PreviewEventType fromOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : null;
+    }
+}
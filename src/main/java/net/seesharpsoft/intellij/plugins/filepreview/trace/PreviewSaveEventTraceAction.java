@@ -0,0 +1,47 @@
+package net.seesharpsoft.intellij.plugins.filepreview.trace;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewSettings;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+public class PreviewSaveEventTraceAction extends AnAction implements DumbAware {
+
+    public static final String TRACE_FILE_EXTENSION = "qfptrace";
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabled(e.getProject() != null && PreviewSettings.getInstance().getSnapshot().isEventRecording());
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        FileSaverDescriptor descriptor = new FileSaverDescriptor("Save Preview Event Trace",
+                "Recent preview related UI events of this project, e.g. to attach to a bug report", TRACE_FILE_EXTENSION);
+        VirtualFileWrapper target = FileChooserFactory.getInstance().createSaveFileDialog(descriptor, project)
+                .save(null, "preview-events." + TRACE_FILE_EXTENSION);
+        if (target == null) {
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(target.getFile())))) {
+            PreviewEventRecorder.getInstance(project).getTrace().writeTo(out);
+        } catch (IOException exc) {
+            Messages.showErrorDialog(project, exc.getMessage(), "Save Preview Event Trace");
+        }
+    }
+}
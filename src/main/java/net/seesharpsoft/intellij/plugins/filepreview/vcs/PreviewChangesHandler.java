@@ -0,0 +1,113 @@
+package net.seesharpsoft.intellij.plugins.filepreview.vcs;
+
+import com.intellij.diff.requests.DiffRequest;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.ex.FileEditorManagerEx;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.changes.Change;
+import com.intellij.util.ui.tree.TreeUtil;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewSelectionCoalescer;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewSettings;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import javax.swing.event.TreeSelectionEvent;
+import javax.swing.event.TreeSelectionListener;
+import javax.swing.tree.TreePath;
+import java.awt.*;
+
+import static net.seesharpsoft.intellij.plugins.filepreview.PreviewSettings.PreviewBehavior.PREVIEW_BY_DEFAULT;
+
+/**
+ * Shows the diff of the change selected in a changes tree (e.g. Local Changes) in a single preview tab. The revision contents are
+ * loaded in background, the EDT only swaps the shown diff request.
+ */
+public class PreviewChangesHandler {
+
+    private final Project myProject;
+    private final PreviewDiffFile myDiffFile = new PreviewDiffFile();
+    private final PreviewDiffLoader myDiffLoader;
+    private final PreviewSelectionCoalescer mySelectionCoalescer;
+
+    private JTree myTree;
+
+    private final TreeSelectionListener myTreeSelectionListener = this::treeSelectionChanged;
+
+    public PreviewChangesHandler(@NotNull Project project) {
+        myProject = project;
+        myDiffLoader = PreviewDiffLoader.getInstance(project);
+        mySelectionCoalescer = new PreviewSelectionCoalescer(project,
+                () -> PreviewSettings.getInstance().getSnapshot().getSelectionSettleTimeMs(), component -> selectionSettled());
+    }
+
+    private void treeSelectionChanged(TreeSelectionEvent treeSelectionEvent) {
+        // selection moved on - any diff still loading is outdated
+        myDiffLoader.cancel();
+        mySelectionCoalescer.selectionChanged((Component) treeSelectionEvent.getSource());
+    }
+
+    public void register(@NotNull JTree tree) {
+        if (tree == myTree) {
+            return;
+        }
+        unregister();
+        myTree = tree;
+        myTree.addTreeSelectionListener(myTreeSelectionListener);
+    }
+
+    public void unregister() {
+        if (myTree == null) {
+            return;
+        }
+        myTree.removeTreeSelectionListener(myTreeSelectionListener);
+        myTree = null;
+        mySelectionCoalescer.cancel();
+        myDiffLoader.cancel();
+    }
+
+    public void dispose() {
+        unregister();
+        mySelectionCoalescer.dispose();
+        myDiffLoader.clear();
+    }
+
+    @Nullable
+    private Change getSelectedChange() {
+        TreePath path = myTree == null ? null : myTree.getSelectionPath();
+        if (path == null || myTree.getSelectionCount() != 1) {
+            return null;
+        }
+        Object userObject = TreeUtil.getUserObject(path.getLastPathComponent());
+        return userObject instanceof Change ? (Change) userObject : null;
+    }
+
+    protected void selectionSettled() {
+        if (!PreviewUtil.isValid(myProject) || PreviewSettings.getInstance().getSnapshot().getPreviewBehavior() != PREVIEW_BY_DEFAULT) {
+            return;
+        }
+        Change change = getSelectedChange();
+        if (change == null) {
+            return;
+        }
+        myDiffLoader.load(change, request -> showDiff(PreviewDiffLoader.getTitle(change), request));
+    }
+
+    protected void showDiff(@NotNull String title, @NotNull DiffRequest request) {
+        myDiffFile.setRequest(title, request);
+        FileEditorManagerEx fileEditorManager = FileEditorManagerEx.getInstanceEx(myProject);
+        if (fileEditorManager.isFileOpen(myDiffFile)) {
+            for (FileEditor fileEditor : fileEditorManager.getEditors(myDiffFile)) {
+                if (fileEditor instanceof PreviewDiffEditor) {
+                    ((PreviewDiffEditor) fileEditor).setRequest(request);
+                }
+            }
+            fileEditorManager.updateFilePresentation(myDiffFile);
+        } else {
+            PreviewUtil.preparePreview(myProject, myDiffFile);
+        }
+        // keep focus in the changes tree for keyboard navigation
+        fileEditorManager.openFile(myDiffFile, false);
+    }
+}
@@ -0,0 +1,46 @@
+package net.seesharpsoft.intellij.plugins.filepreview.vcs;
+
+import com.intellij.diff.DiffManager;
+import com.intellij.diff.DiffRequestPanel;
+import com.intellij.diff.requests.DiffRequest;
+import com.intellij.openapi.project.Project;
+import net.seesharpsoft.intellij.plugins.filepreview.editor.PreviewFileEditorBase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+
+public class PreviewDiffEditor extends PreviewFileEditorBase {
+
+    private final DiffRequestPanel myDiffPanel;
+
+    public PreviewDiffEditor(@NotNull Project project, @NotNull PreviewDiffFile file) {
+        super(file);
+        myDiffPanel = DiffManager.getInstance().createRequestPanel(project, this, null);
+        if (file.getRequest() != null) {
+            myDiffPanel.setRequest(file.getRequest());
+        }
+    }
+
+    public void setRequest(@NotNull DiffRequest request) {
+        myDiffPanel.setRequest(request);
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "Diff Preview";
+    }
+
+    @NotNull
+    @Override
+    public JComponent getComponent() {
+        return myDiffPanel.getComponent();
+    }
+
+    @Nullable
+    @Override
+    public JComponent getPreferredFocusedComponent() {
+        return myDiffPanel.getPreferredFocusedComponent();
+    }
+}
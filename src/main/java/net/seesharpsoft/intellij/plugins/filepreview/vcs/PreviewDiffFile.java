@@ -0,0 +1,34 @@
+package net.seesharpsoft.intellij.plugins.filepreview.vcs;
+
+import com.intellij.diff.requests.DiffRequest;
+import com.intellij.testFramework.LightVirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Placeholder file of the diff preview tab - the shown diff changes while the tab stays open.
+ */
+public class PreviewDiffFile extends LightVirtualFile {
+
+    private String myTitle;
+    private DiffRequest myRequest;
+
+    public PreviewDiffFile() {
+        super("Diff");
+        setWritable(false);
+    }
+
+    public DiffRequest getRequest() {
+        return myRequest;
+    }
+
+    public void setRequest(@NotNull String title, @NotNull DiffRequest request) {
+        myTitle = title;
+        myRequest = request;
+    }
+
+    @NotNull
+    @Override
+    public String getPresentableName() {
+        return myTitle == null ? super.getPresentableName() : myTitle;
+    }
+}
@@ -0,0 +1,197 @@
+package net.seesharpsoft.intellij.plugins.filepreview.vcs;
+
+import com.intellij.diff.DiffContentFactory;
+import com.intellij.diff.contents.DiffContent;
+import com.intellij.diff.requests.DiffRequest;
+import com.intellij.diff.requests.MessageDiffRequest;
+import com.intellij.diff.requests.SimpleDiffRequest;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.util.ProgressIndicatorBase;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vcs.changes.BinaryContentRevision;
+import com.intellij.openapi.vcs.changes.Change;
+import com.intellij.openapi.vcs.changes.ChangesUtil;
+import com.intellij.openapi.vcs.changes.ContentRevision;
+import com.intellij.openapi.vcs.changes.CurrentContentRevision;
+import com.intellij.openapi.vfs.VirtualFile;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Loads the revision contents of a change on a pooled thread - a newer request cancels the one in progress. Loaded diffs are cached
+ * (LRU) by revision numbers and, for local content, the modification stamp.
+ */
+public final class PreviewDiffLoader implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(PreviewDiffLoader.class);
+
+    public static final int MAX_CACHE_SIZE = 64;
+
+    private final Project myProject;
+    private volatile ProgressIndicator myCurrentIndicator;
+
+    private final Map<String, DiffRequest> myCache = new LinkedHashMap<String, DiffRequest>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DiffRequest> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+
+    private final AtomicLong myHitCount = new AtomicLong();
+    private final AtomicLong myMissCount = new AtomicLong();
+
+    public static PreviewDiffLoader getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, PreviewDiffLoader.class);
+    }
+
+    public PreviewDiffLoader(@NotNull Project project) {
+        myProject = project;
+    }
+
+    public void load(@NotNull Change change, @NotNull Consumer<DiffRequest> onLoaded) {
+        cancel();
+        final String cacheKey = getCacheKey(change);
+        DiffRequest request;
+        synchronized (myCache) {
+            request = myCache.get(cacheKey);
+        }
+        if (request != null) {
+            myHitCount.incrementAndGet();
+            onLoaded.accept(request);
+            return;
+        }
+        myMissCount.incrementAndGet();
+
+        final ProgressIndicator indicator = new ProgressIndicatorBase();
+        myCurrentIndicator = indicator;
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            try {
+                ProgressManager.getInstance().runProcess(() -> {
+                    DiffRequest loadedRequest = createRequest(change, indicator);
+                    synchronized (myCache) {
+                        myCache.put(cacheKey, loadedRequest);
+                    }
+                    ApplicationManager.getApplication().invokeLater(() -> {
+                        if (myCurrentIndicator != indicator || !PreviewUtil.isValid(myProject)) {
+                            return;
+                        }
+                        myCurrentIndicator = null;
+                        onLoaded.accept(loadedRequest);
+                    }, ModalityState.defaultModalityState(), myProject.getDisposed());
+                }, indicator);
+            } catch (ProcessCanceledException exc) {
+                // selection moved on
+            } catch (RuntimeException exc) {
+                LOG.warn("diff could not be loaded: " + getTitle(change), exc);
+            }
+        });
+    }
+
+    public void cancel() {
+        ProgressIndicator indicator = myCurrentIndicator;
+        myCurrentIndicator = null;
+        if (indicator != null) {
+            indicator.cancel();
+        }
+    }
+
+    public void clear() {
+        synchronized (myCache) {
+            myCache.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return myHitCount.get();
+    }
+
+    public long getMissCount() {
+        return myMissCount.get();
+    }
+
+    @Override
+    public void dispose() {
+        cancel();
+        clear();
+        LOG.info(String.format("diff preview - cache hits: %d, diffs loaded: %d", getHitCount(), getMissCount()));
+    }
+
+    @NotNull
+    public static String getTitle(@NotNull Change change) {
+        return ChangesUtil.getFilePath(change).getName();
+    }
+
+    @NotNull
+    private static String getCacheKey(@NotNull Change change) {
+        return getCacheKey(change.getBeforeRevision()) + "->" + getCacheKey(change.getAfterRevision());
+    }
+
+    @NotNull
+    private static String getCacheKey(@Nullable ContentRevision revision) {
+        if (revision == null) {
+            return "-";
+        }
+        String key = revision.getFile().getPath() + "@" + revision.getRevisionNumber().asString();
+        if (revision instanceof CurrentContentRevision) {
+            VirtualFile file = ((CurrentContentRevision) revision).getVirtualFile();
+            Document document = file == null ? null : FileDocumentManager.getInstance().getCachedDocument(file);
+            key += "#" + (document != null ? document.getModificationStamp() : file != null ? file.getModificationStamp() : -1);
+        }
+        return key;
+    }
+
+    @NotNull
+    private DiffRequest createRequest(@NotNull Change change, @NotNull ProgressIndicator indicator) {
+        ContentRevision beforeRevision = change.getBeforeRevision();
+        ContentRevision afterRevision = change.getAfterRevision();
+        String title = getTitle(change);
+        if (beforeRevision instanceof BinaryContentRevision || afterRevision instanceof BinaryContentRevision) {
+            return new MessageDiffRequest(title, "Binary content can not be previewed");
+        }
+        try {
+            DiffContent beforeContent = createContent(beforeRevision, indicator);
+            DiffContent afterContent = createContent(afterRevision, indicator);
+            return new SimpleDiffRequest(title, beforeContent, afterContent, getRevisionTitle(beforeRevision), getRevisionTitle(afterRevision));
+        } catch (VcsException exc) {
+            return new MessageDiffRequest(title, exc.getMessage());
+        }
+    }
+
+    @NotNull
+    private DiffContent createContent(@Nullable ContentRevision revision, @NotNull ProgressIndicator indicator) throws VcsException {
+        indicator.checkCanceled();
+        DiffContentFactory diffContentFactory = DiffContentFactory.getInstance();
+        if (revision == null) {
+            return diffContentFactory.createEmpty();
+        }
+        String content = revision.getContent();
+        indicator.checkCanceled();
+        FileType fileType = revision.getFile().getFileType();
+        return diffContentFactory.create(myProject, content == null ? "" : content, fileType);
+    }
+
+    @NotNull
+    private static String getRevisionTitle(@Nullable ContentRevision revision) {
+        if (revision == null) {
+            return "";
+        }
+        return revision instanceof CurrentContentRevision ? "Your version" : revision.getRevisionNumber().asString();
+    }
+}
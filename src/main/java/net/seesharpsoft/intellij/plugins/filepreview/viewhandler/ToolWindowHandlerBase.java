@@ -10,15 +10,16 @@ import net.seesharpsoft.intellij.plugins.filepreview.PreviewUtil;
 import net.seesharpsoft.intellij.plugins.filepreview.PreviewViewHandler;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class ToolWindowHandlerBase implements PreviewViewHandler {
 
     private final Map<PreviewProjectHandler, ProjectToolWindowHandler.ContentManagerListener> registeredContentManagerListeners;
 
     public ToolWindowHandlerBase() {
-        registeredContentManagerListeners = new HashMap<>();
+        // handlers are shared by all projects
+        registeredContentManagerListeners = new ConcurrentHashMap<>();
     }
 
     protected abstract String getToolWindowId();
@@ -61,6 +62,7 @@ public abstract class ToolWindowHandlerBase implements PreviewViewHandler {
             cm.removeContentManagerListener(cml);
         }
         cml.unregisterCurrentTree();
+        cml.dispose();
         registeredContentManagerListeners.remove(previewProjectHandler);
     }
 
@@ -86,5 +88,9 @@ public abstract class ToolWindowHandlerBase implements PreviewViewHandler {
 
         public abstract void unregisterCurrentTree();
         public abstract void registerCurrentTree();
+
+        public void dispose() {
+            // nothing to dispose by default
+        }
     }
 }
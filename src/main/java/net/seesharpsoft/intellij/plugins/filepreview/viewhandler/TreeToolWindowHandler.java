@@ -0,0 +1,64 @@
+package net.seesharpsoft.intellij.plugins.filepreview.viewhandler;
+
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowManager;
+import com.intellij.ui.content.Content;
+import com.intellij.util.ui.UIUtil;
+import net.seesharpsoft.intellij.plugins.filepreview.PreviewProjectHandler;
+
+import javax.swing.*;
+
+/**
+ * Handles the first tree found in the selected content of a tool window, e.g. Structure, TODO, Favorites or Find.
+ */
+public class TreeToolWindowHandler extends ToolWindowHandlerBase {
+
+    private final String myToolWindowId;
+
+    public TreeToolWindowHandler(String toolWindowId) {
+        myToolWindowId = toolWindowId;
+    }
+
+    @Override
+    protected String getToolWindowId() {
+        return myToolWindowId;
+    }
+
+    @Override
+    protected ContentManagerListener createContentManagerListener(PreviewProjectHandler previewProjectHandler) {
+        return new TreeContentManagerListener(previewProjectHandler, myToolWindowId);
+    }
+
+    public static class TreeContentManagerListener extends ContentManagerListener {
+
+        private final String myToolWindowId;
+        private JTree myTree;
+
+        public TreeContentManagerListener(PreviewProjectHandler previewProjectHandler, String toolWindowId) {
+            super(previewProjectHandler);
+            myToolWindowId = toolWindowId;
+        }
+
+        protected JTree getCurrentTree() {
+            ToolWindow toolWindow = ToolWindowManager.getInstance(myPreviewProjectHandler.getProject()).getToolWindow(myToolWindowId);
+            Content content = toolWindow == null ? null : toolWindow.getContentManager().getSelectedContent();
+            return content == null ? null : UIUtil.findComponentOfType(content.getComponent(), JTree.class);
+        }
+
+        public void unregisterCurrentTree() {
+            if (myTree != null) {
+                myPreviewProjectHandler.unregisterTreeHandlers(myTree);
+                myTree = null;
+            }
+        }
+
+        public void registerCurrentTree() {
+            JTree tree = getCurrentTree();
+            if (tree != null && tree != myTree) {
+                unregisterCurrentTree();
+                myPreviewProjectHandler.registerTreeHandlers(tree);
+                myTree = tree;
+            }
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package net.seesharpsoft.intellij.plugins.filepreview.viewhandler;
 
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.changes.ui.ChangesListView;
+import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowId;
+import com.intellij.openapi.wm.ToolWindowManager;
+import com.intellij.ui.content.Content;
+import com.intellij.util.ui.UIUtil;
 import net.seesharpsoft.intellij.plugins.filepreview.PreviewProjectHandler;
+import net.seesharpsoft.intellij.plugins.filepreview.vcs.PreviewChangesHandler;
 
 public class VcsToolWindowHandler extends ToolWindowHandlerBase {
 
@@ -17,17 +24,35 @@ public class VcsToolWindowHandler extends ToolWindowHandlerBase {
 
     public static class VcsContentManagerListener extends ContentManagerListener {
 
+        private final PreviewChangesHandler myChangesHandler;
+
         public VcsContentManagerListener(PreviewProjectHandler previewProjectHandler) {
             super(previewProjectHandler);
+            myChangesHandler = new PreviewChangesHandler(previewProjectHandler.getProject());
         }
 
+        protected ChangesListView getCurrentChangesTree() {
+            Project project = myPreviewProjectHandler.getProject();
+            ToolWindow toolWindow = ToolWindowManager.getInstance(project).getToolWindow(ToolWindowId.VCS);
+            Content content = toolWindow == null ? null : toolWindow.getContentManager().getSelectedContent();
+            // the Local Changes tab - other tabs (e.g. Log) contain no changes list
+            return content == null ? null : UIUtil.findComponentOfType(content.getComponent(), ChangesListView.class);
+        }
 
         public void unregisterCurrentTree() {
-//            ChangesViewManager.getInstance(myPreviewProjectHandler.getProject())
+            myChangesHandler.unregister();
         }
 
         public void registerCurrentTree() {
+            ChangesListView changesTree = getCurrentChangesTree();
+            if (changesTree != null) {
+                myChangesHandler.register(changesTree);
+            }
+        }
 
+        @Override
+        public void dispose() {
+            myChangesHandler.dispose();
         }
     }
 }
@@ -0,0 +1,170 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.fixtures.LightPlatformCodeInsightFixtureTestCase;
+import net.seesharpsoft.intellij.plugins.filepreview.metrics.PreviewLatencyHistogram;
+import net.seesharpsoft.intellij.plugins.filepreview.metrics.PreviewLatencyStage;
+import net.seesharpsoft.intellij.plugins.filepreview.metrics.PreviewMetrics;
+import net.seesharpsoft.intellij.plugins.filepreview.trace.PreviewEvent;
+import net.seesharpsoft.intellij.plugins.filepreview.trace.PreviewEventTrace;
+import net.seesharpsoft.intellij.plugins.filepreview.trace.PreviewEventType;
+
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays event traces against a light project and checks the final preview state and the recorded latencies - a recorded trace
+ * (Tools | Save Quick File Preview Event Trace...) can be replayed by running the tests with <code>-Dpreview.trace=&lt;path to trace file&gt;</code>.
+ */
+public class PreviewEventTraceReplayTest extends LightPlatformCodeInsightFixtureTestCase {
+
+    public static final String TRACE_FILE_PROPERTY = "preview.trace";
+
+    private PreviewProjectHandler myHandler;
+    private final Map<String, VirtualFile> myFiles = new HashMap<>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        myHandler = new PreviewProjectHandler(getProject(), getProject().getMessageBus().connect(getTestRootDisposable()));
+        PreviewMetrics.getInstance().reset();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            myHandler.dispose();
+            myFiles.clear();
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    private VirtualFile getOrCreateFile(String path) {
+        return myFiles.computeIfAbsent(path, thePath -> {
+            String relativePath = thePath.startsWith("/") ? thePath.substring(1) : thePath;
+            return myFixture.addFileToProject(relativePath, "content of " + relativePath + "\n").getVirtualFile();
+        });
+    }
+
+    private PreviewEventTraceReplayer.Result replay(PreviewEventTrace trace) {
+        for (PreviewEvent event : trace.getEvents()) {
+            if (event.getPath() != null) {
+                getOrCreateFile(event.getPath());
+            }
+        }
+        PreviewEventTraceReplayer.Result result = new PreviewEventTraceReplayer(myHandler, this::getOrCreateFile).replay(trace);
+
+        assertTrue(result.toString(), result.getReplayedEventCount() <= result.getEventCount());
+        // previews are open editors - a registered preview without editor is a leak
+        assertContainsElements(Arrays.asList(result.getOpenFiles()), result.getPreviewedFiles());
+        PreviewLatencyHistogram histogram = PreviewMetrics.getInstance().getHistogram(PreviewLatencyStage.TOTAL);
+        assertTrue(histogram.getPercentileMicros(50) <= histogram.getPercentileMicros(95));
+        assertTrue(histogram.getPercentileMicros(95) <= histogram.getMaxMicros());
+        return result;
+    }
+
+    private static PreviewEventTrace createBrowsingTrace(int fileCount, long stepMillis) {
+        PreviewEventTrace trace = new PreviewEventTrace(1024);
+        long timestamp = 0;
+        for (int i = 0; i < fileCount; ++i) {
+            trace.record(PreviewEventType.KEY_PRESSED, timestamp, KeyEvent.VK_DOWN, null);
+            trace.record(PreviewEventType.TREE_SELECTION, timestamp, 0, String.format("dir/file%03d.txt", i));
+            timestamp += TimeUnit.MILLISECONDS.toNanos(stepMillis);
+        }
+        return trace;
+    }
+
+    public void testTraceSurvivesSerialization() throws IOException {
+        PreviewEventTrace trace = createBrowsingTrace(10, 20);
+        trace.record(PreviewEventType.MOUSE_RELEASED, 1000, 2 | MouseEvent.BUTTON1 << 8, null);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        trace.writeTo(new DataOutputStream(bytes));
+        PreviewEventTrace readTrace = PreviewEventTrace.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(trace.getEvents().toString(), readTrace.getEvents().toString());
+    }
+
+    public void testRingBufferKeepsLatestEvents() {
+        PreviewEventTrace trace = new PreviewEventTrace(4);
+        for (int i = 0; i < 10; ++i) {
+            trace.record(PreviewEventType.KEY_PRESSED, i, i, null);
+        }
+        List<PreviewEvent> events = trace.getEvents();
+        assertEquals(4, events.size());
+        assertEquals(6, events.get(0).getArg());
+        assertEquals(9, events.get(3).getArg());
+    }
+
+    public void testRingBufferReleasesOverwrittenPaths() {
+        PreviewEventTrace trace = new PreviewEventTrace(4);
+        for (int i = 0; i < 100; ++i) {
+            trace.record(PreviewEventType.TREE_SELECTION, i, 0, "file" + i);
+        }
+        trace.record(PreviewEventType.TREE_SELECTION, 100, 0, "file99");
+
+        assertEquals(3, trace.getPathCount());
+        List<PreviewEvent> events = trace.getEvents();
+        assertEquals("file97", events.get(0).getPath());
+        assertEquals("file99", events.get(3).getPath());
+    }
+
+    public void testFastBrowsingPreviewsLastFileOnly() {
+        PreviewEventTraceReplayer.Result result = replay(createBrowsingTrace(50, 10));
+
+        VirtualFile lastFile = getOrCreateFile("dir/file049.txt");
+        assertSameElements(result.getPreviewedFiles(), lastFile);
+        assertTrue(result.getReplayedEventCount() < result.getEventCount());
+        assertEquals(1, PreviewMetrics.getInstance().getHistogram(PreviewLatencyStage.GOTO_RESOLUTION).getCount());
+    }
+
+    public void testSlowBrowsingPreviewsEveryFile() {
+        PreviewEventTraceReplayer.Result result = replay(createBrowsingTrace(50, 500));
+
+        assertEquals(result.getEventCount(), result.getReplayedEventCount());
+        VirtualFile lastFile = getOrCreateFile("dir/file049.txt");
+        assertSameElements(result.getPreviewedFiles(), lastFile);
+        // every preview is closed by the next one
+        assertSameElements(Arrays.asList(result.getOpenFiles()), lastFile);
+        assertEquals(50, PreviewMetrics.getInstance().getHistogram(PreviewLatencyStage.GOTO_RESOLUTION).getCount());
+    }
+
+    public void testEscapeClosesPreview() {
+        PreviewEventTrace trace = createBrowsingTrace(3, 500);
+        trace.record(PreviewEventType.KEY_PRESSED, TimeUnit.SECONDS.toNanos(2), KeyEvent.VK_ESCAPE, null);
+
+        PreviewEventTraceReplayer.Result result = replay(trace);
+
+        assertEmpty(result.getPreviewedFiles());
+        assertEmpty(result.getOpenFiles());
+        assertFalse(FileEditorManager.getInstance(getProject()).isFileOpen(getOrCreateFile("dir/file002.txt")));
+    }
+
+    public void testRecordedTrace() throws IOException {
+        String traceFile = System.getProperty(TRACE_FILE_PROPERTY);
+        if (traceFile == null) {
+            return;
+        }
+        PreviewEventTrace trace;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(traceFile)))) {
+            trace = PreviewEventTrace.readFrom(in);
+        }
+        PreviewEventTraceReplayer.Result result = replay(trace);
+
+        assertEquals(trace.size(), result.getEventCount());
+    }
+}
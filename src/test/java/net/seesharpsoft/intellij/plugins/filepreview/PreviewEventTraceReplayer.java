@@ -0,0 +1,190 @@
+package net.seesharpsoft.intellij.plugins.filepreview;
+
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.PlatformTestUtil;
+import net.seesharpsoft.intellij.plugins.filepreview.metrics.PreviewLatencyTrace;
+import net.seesharpsoft.intellij.plugins.filepreview.trace.PreviewEvent;
+import net.seesharpsoft.intellij.plugins.filepreview.trace.PreviewEventTrace;
+import net.seesharpsoft.intellij.plugins.filepreview.trace.PreviewEventType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Replays a recorded {@link PreviewEventTrace} against a {@link PreviewProjectHandler}. Selections are passed through a real
+ * {@link PreviewSelectionCoalescer} - the recorded pauses between events are kept, but never longer than needed for a selection to settle.
+ * Editor events are applied only if the editor state does not already reflect them (most of them are consequences of previous events).
+ */
+public class PreviewEventTraceReplayer {
+
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    // added to the settle time - the alarm of the coalescer is due for sure afterwards
+    private static final long SETTLE_MARGIN_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Project myProject;
+    private final PreviewProjectHandler myHandler;
+    private final Function<String, VirtualFile> myFileResolver;
+    private final JTree myTree = new JTree();
+    private final PreviewSelectionCoalescer mySelectionCoalescer;
+
+    private VirtualFile mySelectedFile;
+    private int mySettledSelectionCount;
+
+    public PreviewEventTraceReplayer(@NotNull PreviewProjectHandler handler, @NotNull Function<String, VirtualFile> fileResolver) {
+        myProject = handler.getProject();
+        myHandler = handler;
+        myFileResolver = fileResolver;
+        mySelectionCoalescer = new PreviewSelectionCoalescer(myProject,
+                () -> PreviewSettings.getInstance().getSnapshot().getSelectionSettleTimeMs(), this::selectionSettled);
+    }
+
+    @NotNull
+    public Result replay(@NotNull PreviewEventTrace trace) {
+        List<PreviewEvent> events = trace.getEvents();
+        long settleTimeNanos = TimeUnit.MILLISECONDS.toNanos(PreviewSettings.getInstance().getSnapshot().getSelectionSettleTimeMs());
+        int replayedCount = 0;
+        mySettledSelectionCount = 0;
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < events.size(); ++i) {
+                PreviewEvent event = events.get(i);
+                if (event.getType() == PreviewEventType.TREE_SELECTION) {
+                    mySelectedFile = resolve(event.getPath());
+                    mySelectionCoalescer.selectionChanged(myTree);
+                } else {
+                    replay(event);
+                    ++replayedCount;
+                }
+                long pauseNanos = i + 1 < events.size() ? events.get(i + 1).getTimestampNanos() - event.getTimestampNanos() : Long.MAX_VALUE;
+                waitForIdle(Math.min(pauseNanos, settleTimeNanos + SETTLE_MARGIN_NANOS));
+            }
+        } finally {
+            mySelectionCoalescer.dispose();
+        }
+        return new Result(events.size(), replayedCount + mySettledSelectionCount, System.nanoTime() - start,
+                PreviewRegistry.getInstance(myProject).getPreviewedFiles(),
+                FileEditorManager.getInstance(myProject).getOpenFiles(), FileEditorManager.getInstance(myProject).getSelectedFiles());
+    }
+
+    private void selectionSettled(@NotNull Component source) {
+        ++mySettledSelectionCount;
+        PreviewLatencyTrace.start(myProject);
+        myHandler.selectedFileSettled(myTree, mySelectedFile, null);
+    }
+
+    protected void replay(@NotNull PreviewEvent event) {
+        VirtualFile file = resolve(event.getPath());
+        FileEditorManager fileEditorManager = FileEditorManager.getInstance(myProject);
+        switch (event.getType()) {
+            case MOUSE_RELEASED:
+                if ((event.getArg() & 0xFF) == 2 && event.getArg() >> 8 == MouseEvent.BUTTON1) {
+                    myHandler.selectedFileDoubleClicked(mySelectedFile);
+                }
+                break;
+            case KEY_PRESSED:
+                if (event.getArg() == KeyEvent.VK_ESCAPE) {
+                    PreviewUtil.closeAllPreviews(myProject);
+                } else if (event.getArg() == KeyEvent.VK_SPACE) {
+                    PreviewUtil.openPreviewOrEditor(myProject, PreviewUtil.getGotoFile(myProject, mySelectedFile), false);
+                }
+                break;
+            case FILE_OPENED:
+                if (file != null && !fileEditorManager.isFileOpen(file)) {
+                    fileEditorManager.openFile(file, false);
+                }
+                break;
+            case FILE_CLOSED:
+                if (file != null && fileEditorManager.isFileOpen(file)) {
+                    fileEditorManager.closeFile(file);
+                }
+                break;
+            case EDITOR_SELECTION_CHANGED:
+                if (file != null && !Arrays.asList(fileEditorManager.getSelectedFiles()).contains(file)) {
+                    fileEditorManager.openFile(file, true);
+                }
+                break;
+            default:
+                throw new UnsupportedOperationException(String.format("case '%s' not handled", event.getType()));
+        }
+    }
+
+    @Nullable
+    private VirtualFile resolve(@Nullable String path) {
+        return path == null ? null : myFileResolver.apply(path);
+    }
+
+    /**
+     * Dispatches events for the given pause at least - and until no goto file is resolved anymore.
+     */
+    private void waitForIdle(long pauseNanos) {
+        long pauseEnd = System.nanoTime() + pauseNanos;
+        long deadline = System.nanoTime() + IDLE_TIMEOUT_NANOS;
+        do {
+            PlatformTestUtil.dispatchAllInvocationEventsInIdeEventQueue();
+        } while ((System.nanoTime() < pauseEnd || myHandler.isResolvingGotoFile()) && System.nanoTime() < deadline);
+        PlatformTestUtil.dispatchAllInvocationEventsInIdeEventQueue();
+    }
+
+    public static final class Result {
+        private final int myEventCount;
+        private final int myReplayedEventCount;
+        private final long myDurationNanos;
+        private final List<VirtualFile> myPreviewedFiles;
+        private final VirtualFile[] myOpenFiles;
+        private final VirtualFile[] mySelectedFiles;
+
+        Result(int eventCount, int replayedEventCount, long durationNanos, List<VirtualFile> previewedFiles, VirtualFile[] openFiles, VirtualFile[] selectedFiles) {
+            myEventCount = eventCount;
+            myReplayedEventCount = replayedEventCount;
+            myDurationNanos = durationNanos;
+            myPreviewedFiles = previewedFiles;
+            myOpenFiles = openFiles;
+            mySelectedFiles = selectedFiles;
+        }
+
+        public int getEventCount() {
+            return myEventCount;
+        }
+
+        public int getReplayedEventCount() {
+            return myReplayedEventCount;
+        }
+
+        public long getDurationNanos() {
+            return myDurationNanos;
+        }
+
+        public double getThroughput() {
+            return myDurationNanos == 0 ? 0 : myReplayedEventCount * 1e9 / myDurationNanos;
+        }
+
+        public List<VirtualFile> getPreviewedFiles() {
+            return myPreviewedFiles;
+        }
+
+        public VirtualFile[] getOpenFiles() {
+            return myOpenFiles;
+        }
+
+        public VirtualFile[] getSelectedFiles() {
+            return mySelectedFiles;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d events (%d replayed) in %.1f ms - %.1f events/s%npreviewed: %s%nopen: %s%nselected: %s",
+                    myEventCount, myReplayedEventCount, myDurationNanos / 1e6, getThroughput(),
+                    myPreviewedFiles, Arrays.toString(myOpenFiles), Arrays.toString(mySelectedFiles));
+        }
+    }
+}
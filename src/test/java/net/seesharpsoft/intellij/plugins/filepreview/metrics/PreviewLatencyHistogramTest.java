@@ -0,0 +1,117 @@
+package net.seesharpsoft.intellij.plugins.filepreview.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PreviewLatencyHistogramTest {
+
+    private static PreviewLatencyHistogram histogramOf(long... micros) {
+        PreviewLatencyHistogram histogram = new PreviewLatencyHistogram();
+        for (long value : micros) {
+            histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(value));
+        }
+        return histogram;
+    }
+
+    @Test
+    public void smallValuesHaveOwnBuckets() {
+        for (int micros = 0; micros < 8; ++micros) {
+            assertEquals(micros, PreviewLatencyHistogram.getBucketIndex(micros));
+            assertEquals(micros, PreviewLatencyHistogram.getBucketLowerBound(micros));
+        }
+        assertEquals(0, PreviewLatencyHistogram.getBucketIndex(-1));
+    }
+
+    @Test
+    public void bucketBoundsEncloseValue() {
+        for (long micros = 1; micros > 0 && micros < Long.MAX_VALUE / 2; micros = micros * 3 + 1) {
+            int index = PreviewLatencyHistogram.getBucketIndex(micros);
+            assertTrue(micros + " below bucket " + index, PreviewLatencyHistogram.getBucketLowerBound(index) <= micros);
+            assertTrue(micros + " above bucket " + index, PreviewLatencyHistogram.getBucketLowerBound(index + 1) > micros);
+        }
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (int index = 0; index < 400; ++index) {
+            long lowerBound = PreviewLatencyHistogram.getBucketLowerBound(index);
+            assertEquals(index, PreviewLatencyHistogram.getBucketIndex(lowerBound));
+            assertEquals(index, PreviewLatencyHistogram.getBucketIndex(PreviewLatencyHistogram.getBucketLowerBound(index + 1) - 1));
+        }
+    }
+
+    @Test
+    public void bucketsAreAccurateByOneEighth() {
+        for (int index = 8; index < 400; ++index) {
+            long lowerBound = PreviewLatencyHistogram.getBucketLowerBound(index);
+            long width = PreviewLatencyHistogram.getBucketLowerBound(index + 1) - lowerBound;
+            assertTrue("bucket " + index, width * 8 <= lowerBound);
+        }
+    }
+
+    @Test
+    public void emptyHistogram() {
+        PreviewLatencyHistogram histogram = new PreviewLatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMicros(50));
+        assertEquals(0, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void singleValue() {
+        PreviewLatencyHistogram histogram = histogramOf(5);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(5, histogram.getPercentileMicros(0));
+        assertEquals(5, histogram.getPercentileMicros(50));
+        assertEquals(5, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void percentiles() {
+        PreviewLatencyHistogram histogram = new PreviewLatencyHistogram();
+        for (long millis = 1; millis <= 100; ++millis) {
+            histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100_000, histogram.getMaxMicros());
+        assertPercentile(histogram, 50, 50_000);
+        assertPercentile(histogram, 95, 95_000);
+        assertPercentile(histogram, 99, 99_000);
+        // capped by the maximum
+        assertEquals(100_000, histogram.getPercentileMicros(100));
+        assertEquals(100_000, histogram.getPercentileMicros(200));
+        assertPercentile(histogram, -1, 1_000);
+    }
+
+    private static void assertPercentile(PreviewLatencyHistogram histogram, double percentile, long expectedMicros) {
+        long actual = histogram.getPercentileMicros(percentile);
+        // upper bound of the bucket - at most one eighth above the value
+        assertTrue(percentile + "th percentile " + actual, actual >= expectedMicros && actual <= expectedMicros + expectedMicros / 8);
+    }
+
+    @Test
+    public void percentileOfSkewedDistribution() {
+        PreviewLatencyHistogram histogram = histogramOf(10, 10, 10, 10, 10, 10, 10, 10, 10, 1_000_000);
+
+        assertPercentile(histogram, 50, 10);
+        assertPercentile(histogram, 90, 10);
+        assertEquals(1_000_000, histogram.getPercentileMicros(91));
+    }
+
+    @Test
+    public void reset() {
+        PreviewLatencyHistogram histogram = histogramOf(10, 20, 30);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.getPercentileMicros(50));
+    }
+}
@@ -0,0 +1,48 @@
+package net.seesharpsoft.intellij.plugins.filepreview.qualification;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryContentRuleTest {
+
+    private static boolean isBinary(byte... header) {
+        return BinaryContentRule.isBinary(ByteBuffer.wrap(header));
+    }
+
+    @Test
+    public void emptyHeader() {
+        assertFalse(isBinary());
+    }
+
+    @Test
+    public void text() {
+        assertFalse(isBinary("plain text\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void nulByte() {
+        assertTrue(isBinary((byte) 'P', (byte) 'K', (byte) 3, (byte) 4, (byte) 0));
+        assertTrue(isBinary((byte) 0));
+    }
+
+    @Test
+    public void utf8ByteOrderMark() {
+        assertFalse(isBinary((byte) 0xEF, (byte) 0xBB, (byte) 0xBF, (byte) 'a'));
+    }
+
+    @Test
+    public void utf16ByteOrderMarks() {
+        assertFalse(isBinary((byte) 0xFE, (byte) 0xFF, (byte) 0, (byte) 'a'));
+        assertFalse(isBinary((byte) 0xFF, (byte) 0xFE, (byte) 'a', (byte) 0));
+    }
+
+    @Test
+    public void utf16WithoutByteOrderMark() {
+        assertTrue(isBinary("ab".getBytes(StandardCharsets.UTF_16LE)));
+    }
+}
@@ -0,0 +1,75 @@
+package net.seesharpsoft.intellij.plugins.filepreview.qualification;
+
+import com.intellij.openapi.fileTypes.PlainTextFileType;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FileSizeRuleTest {
+
+    @Test
+    public void noLimit() {
+        FileSizeRule rule = new FileSizeRule(0, Collections.emptyMap(), false);
+
+        assertTrue(rule.isEmpty());
+        assertNull(rule.evaluate(new TestVirtualFile("/a.txt", Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void withinLimit() {
+        FileSizeRule rule = new FileSizeRule(1024, Collections.emptyMap(), false);
+
+        assertFalse(rule.isEmpty());
+        assertNull(rule.evaluate(new TestVirtualFile("/a.txt", 1024)));
+    }
+
+    @Test
+    public void exceedingLimitIsRejected() {
+        FileSizeRule rule = new FileSizeRule(1024, Collections.emptyMap(), false);
+
+        assertEquals(PreviewQualification.REJECTED, rule.evaluate(new TestVirtualFile("/a.txt", 1025).setLocal(true)));
+    }
+
+    @Test
+    public void exceedingLimitIsOversizedIfShownReadOnly() {
+        FileSizeRule rule = new FileSizeRule(1024, Collections.emptyMap(), true);
+
+        assertEquals(PreviewQualification.OVERSIZED, rule.evaluate(new TestVirtualFile("/a.txt", 1025).setLocal(true)));
+    }
+
+    @Test
+    public void exceedingLimitIsRejectedIfNotLocal() {
+        // the read-only viewer can't map files of other file systems
+        FileSizeRule rule = new FileSizeRule(1024, Collections.emptyMap(), true);
+
+        assertEquals(PreviewQualification.REJECTED, rule.evaluate(new TestVirtualFile("/a.txt", 1025)));
+    }
+
+    @Test
+    public void fileTypeLimitOverridesDefaultLimit() {
+        FileSizeRule rule = new FileSizeRule(1024, Collections.singletonMap("plain_text", 4096L), false);
+
+        assertNull(rule.evaluate(new TestVirtualFile("/a.txt", 4096)));
+        assertEquals(PreviewQualification.REJECTED, rule.evaluate(new TestVirtualFile("/a.txt", 4097)));
+    }
+
+    @Test
+    public void fileTypeWithoutLimit() {
+        FileSizeRule rule = new FileSizeRule(1024, Collections.singletonMap("plain_text", 0L), false);
+
+        assertFalse(rule.isEmpty());
+        assertNull(rule.evaluate(new TestVirtualFile("/a.txt", Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void directoriesAreIgnored() {
+        FileSizeRule rule = new FileSizeRule(1024, Collections.emptyMap(), false);
+
+        assertNull(rule.evaluate(new TestVirtualFile("/dir", 4096, PlainTextFileType.INSTANCE, true)));
+    }
+}
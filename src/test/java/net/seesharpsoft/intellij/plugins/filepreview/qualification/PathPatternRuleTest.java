@@ -0,0 +1,65 @@
+package net.seesharpsoft.intellij.plugins.filepreview.qualification;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PathPatternRuleTest {
+
+    private static PreviewQualification evaluate(String pattern, String path) {
+        return new PathPatternRule(Collections.singletonList(pattern)).evaluate(new TestVirtualFile(path));
+    }
+
+    @Test
+    public void noPatterns() {
+        PathPatternRule rule = new PathPatternRule(Collections.emptyList());
+
+        assertTrue(rule.isEmpty());
+        assertNull(rule.evaluate(new TestVirtualFile("/project/a.txt")));
+    }
+
+    @Test
+    public void fileNamePatternMatchesInAnyDirectory() {
+        assertEquals(PreviewQualification.REJECTED, evaluate("*.min.js", "/project/dist/app.min.js"));
+        assertEquals(PreviewQualification.REJECTED, evaluate("*.min.js", "/app.min.js"));
+        assertNull(evaluate("*.min.js", "/project/dist/app.js"));
+        assertNull(evaluate("*.min.js", "/project/app.min.js/index.js"));
+    }
+
+    @Test
+    public void recursiveDirectoryPattern() {
+        assertEquals(PreviewQualification.REJECTED, evaluate("**/node_modules/**", "/project/node_modules/lib/index.js"));
+        assertNull(evaluate("**/node_modules/**", "/project/my_node_modules/index.js"));
+    }
+
+    @Test
+    public void patternStartingAtRoot() {
+        assertEquals(PreviewQualification.REJECTED, evaluate("/project/build/**", "/project/build/classes/A.class"));
+        assertNull(evaluate("/project/build/**", "/other/project/build/classes/A.class"));
+    }
+
+    @Test
+    public void singleCharacterWildcard() {
+        assertEquals(PreviewQualification.REJECTED, evaluate("file?.log", "/logs/file1.log"));
+        assertNull(evaluate("file?.log", "/logs/file10.log"));
+    }
+
+    @Test
+    public void matchingIsCaseInsensitive() {
+        assertEquals(PreviewQualification.REJECTED, evaluate("*.LOG", "/logs/Server.log"));
+    }
+
+    @Test
+    public void anyPatternRejects() {
+        PathPatternRule rule = new PathPatternRule(Arrays.asList("**/build/**", "*.log"));
+
+        assertEquals(PreviewQualification.REJECTED, rule.evaluate(new TestVirtualFile("/project/build/a.txt")));
+        assertEquals(PreviewQualification.REJECTED, rule.evaluate(new TestVirtualFile("/project/server.log")));
+        assertNull(rule.evaluate(new TestVirtualFile("/project/src/a.txt")));
+    }
+}
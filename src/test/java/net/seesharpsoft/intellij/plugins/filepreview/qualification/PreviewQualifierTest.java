@@ -0,0 +1,72 @@
+package net.seesharpsoft.intellij.plugins.filepreview.qualification;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class PreviewQualifierTest {
+
+    private static PreviewQualificationRule countingRule(AtomicInteger counter, PreviewQualification qualification) {
+        return file -> {
+            counter.incrementAndGet();
+            return qualification;
+        };
+    }
+
+    @Test
+    public void noRulesQualify() {
+        assertEquals(PreviewQualification.QUALIFIED, new PreviewQualifier(Collections.emptyList()).qualify(new TestVirtualFile("/a.txt")));
+    }
+
+    @Test
+    public void noObjectionQualifies() {
+        AtomicInteger counter = new AtomicInteger();
+        PreviewQualifier qualifier = new PreviewQualifier(Arrays.asList(countingRule(counter, null), countingRule(counter, null)));
+
+        assertEquals(PreviewQualification.QUALIFIED, qualifier.qualify(new TestVirtualFile("/a.txt")));
+        assertEquals(2, counter.get());
+    }
+
+    @Test
+    public void firstVerdictWins() {
+        AtomicInteger counter = new AtomicInteger();
+        PreviewQualifier qualifier = new PreviewQualifier(Arrays.asList(
+                countingRule(counter, null),
+                countingRule(counter, PreviewQualification.OVERSIZED),
+                countingRule(counter, PreviewQualification.REJECTED)));
+
+        assertEquals(PreviewQualification.OVERSIZED, qualifier.qualify(new TestVirtualFile("/a.txt")));
+        assertEquals(2, counter.get());
+    }
+
+    @Test
+    public void verdictIsCachedUntilFileIsModified() {
+        AtomicInteger counter = new AtomicInteger();
+        PreviewQualifier qualifier = new PreviewQualifier(Collections.singletonList(countingRule(counter, PreviewQualification.REJECTED)));
+        TestVirtualFile file = new TestVirtualFile("/a.txt");
+
+        assertEquals(PreviewQualification.REJECTED, qualifier.qualify(file));
+        assertEquals(PreviewQualification.REJECTED, qualifier.qualify(file));
+        assertEquals(1, counter.get());
+
+        file.setModificationStamp(1);
+        assertEquals(PreviewQualification.REJECTED, qualifier.qualify(file));
+        assertEquals(2, counter.get());
+    }
+
+    @Test
+    public void verdictIsNotSharedBetweenQualifiers() {
+        TestVirtualFile file = new TestVirtualFile("/a.txt");
+        AtomicInteger counter = new AtomicInteger();
+
+        assertEquals(PreviewQualification.REJECTED,
+                new PreviewQualifier(Collections.singletonList(countingRule(counter, PreviewQualification.REJECTED))).qualify(file));
+        assertEquals(PreviewQualification.QUALIFIED,
+                new PreviewQualifier(Collections.singletonList(countingRule(counter, null))).qualify(file));
+        assertEquals(2, counter.get());
+    }
+}
@@ -0,0 +1,77 @@
+package net.seesharpsoft.intellij.plugins.filepreview.qualification;
+
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileTypes.PlainTextFileType;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.LightVirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link VirtualFile} with a fixed path, length and file type - rules can be evaluated without a running application.
+ */
+class TestVirtualFile extends LightVirtualFile {
+
+    private final String myPath;
+    private final long myLength;
+    private final FileType myFileType;
+    private final boolean myDirectory;
+    private boolean myLocal;
+    private long myModificationStamp;
+
+    TestVirtualFile(@NotNull String path, long length, @NotNull FileType fileType, boolean directory) {
+        super(path.substring(path.lastIndexOf('/') + 1));
+        myPath = path;
+        myLength = length;
+        myFileType = fileType;
+        myDirectory = directory;
+    }
+
+    TestVirtualFile(@NotNull String path, long length) {
+        this(path, length, PlainTextFileType.INSTANCE, false);
+    }
+
+    TestVirtualFile(@NotNull String path) {
+        this(path, 0);
+    }
+
+    TestVirtualFile setLocal(boolean local) {
+        myLocal = local;
+        return this;
+    }
+
+    void setModificationStamp(long modificationStamp) {
+        myModificationStamp = modificationStamp;
+    }
+
+    @NotNull
+    @Override
+    public String getPath() {
+        return myPath;
+    }
+
+    @Override
+    public long getLength() {
+        return myLength;
+    }
+
+    @NotNull
+    @Override
+    public FileType getFileType() {
+        return myFileType;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return myDirectory;
+    }
+
+    @Override
+    public boolean isInLocalFileSystem() {
+        return myLocal;
+    }
+
+    @Override
+    public long getModificationStamp() {
+        return myModificationStamp;
+    }
+}